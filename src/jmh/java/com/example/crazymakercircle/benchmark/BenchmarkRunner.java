@@ -0,0 +1,47 @@
+package com.example.crazymakercircle.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * JMH 基准测试的入口，对每个线程数各跑一轮，结果按线程数分别导出
+ * <p>
+ * 通过系统属性配置：
+ * jmh.include     要运行的基准测试（正则），默认全部
+ * jmh.threads     逗号分隔的线程数列表，默认 1,2,4,8
+ * jmh.rf          结果格式：json / csv，默认 json
+ * jmh.result.dir  结果目录，默认 target/jmh
+ * <p>
+ * 结果文件名中带有 JDK 版本，升级 JDK 后可以与之前的结果逐项对比
+ */
+public class BenchmarkRunner
+{
+    public static void main(String[] args) throws RunnerException
+    {
+        String include = System.getProperty("jmh.include", ".*");
+        String[] threads = System.getProperty("jmh.threads", "1,2,4,8").split(",");
+        ResultFormatType format = ResultFormatType.valueOf(System.getProperty("jmh.rf", "json").toUpperCase());
+        File dir = new File(System.getProperty("jmh.result.dir", "target/jmh"));
+        dir.mkdirs();
+
+        String jdk = System.getProperty("java.specification.version");
+        for (String t : threads)
+        {
+            int threadCount = Integer.parseInt(t.trim());
+            File result = new File(dir, "jdk" + jdk + "-threads" + threadCount + "." + format.name().toLowerCase());
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threadCount)
+                    .resultFormat(format)
+                    .result(result.getPath())
+                    .shouldFailOnError(true)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.crazymakercircle.benchmark;
+
+import com.example.crazymakercircle.util.LogTag;
+import com.example.crazymakercircle.util.ReflectionUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志调用方 "类名.方法名" 的解析开销：
+ * 原来的 Thread.getStackTrace()，不缓存的 StackWalker，
+ * ReflectionUtil 中带调用点缓存的 StackWalker，以及预先计算好的 LogTag
+ * 每个方法都经过一层日志方法再解析，与 Print.tcfo 的调用深度相同
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CallerResolutionBenchmark
+{
+    private static final StackWalker WALKER = StackWalker.getInstance();
+    private static final LogTag TAG = LogTag.of(CallerResolutionBenchmark.class, "staticTag");
+
+    /**
+     * 原来的实现：取得整个调用栈
+     */
+    private static String stackTraceCaller()
+    {
+        StackTraceElement stack[] = Thread.currentThread().getStackTrace();
+        String[] className = stack[3].getClassName().split("\\.");
+        return className[className.length - 1] + "." + stack[3].getMethodName();
+    }
+
+    /**
+     * StackWalker 只取需要的帧，但每次都重新拼接名称
+     */
+    private static String walkerCaller()
+    {
+        StackWalker.StackFrame frame = WALKER.walk(s -> s.limit(8).skip(2).findFirst()).orElseThrow();
+        String className = frame.getClassName();
+        return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+    }
+
+    //模拟日志方法，调用方在解析方法之上第二层
+
+    private static String logStackTrace()
+    {
+        return stackTraceCaller();
+    }
+
+    private static String logWalker()
+    {
+        return walkerCaller();
+    }
+
+    private static String logCached()
+    {
+        return ReflectionUtil.getNakeCallClassMethod();
+    }
+
+    private static String logStaticTag(LogTag tag)
+    {
+        return tag.getName();
+    }
+
+    @Benchmark
+    public String stackTrace()
+    {
+        return logStackTrace();
+    }
+
+    @Benchmark
+    public String stackWalker()
+    {
+        return logWalker();
+    }
+
+    @Benchmark
+    public String cachedStackWalker()
+    {
+        return logCached();
+    }
+
+    @Benchmark
+    public String staticTag()
+    {
+        return logStaticTag(TAG);
+    }
+}
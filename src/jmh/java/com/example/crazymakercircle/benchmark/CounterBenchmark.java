@@ -0,0 +1,98 @@
+package com.example.crazymakercircle.benchmark;
+
+import com.example.crazymakercircle.plus.SafePlus;
+import com.example.crazymakercircle.util.JvmUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sun.misc.Unsafe;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 共享计数器的自增：AtomicLong、LongAdder、Unsafe CAS 自旋、synchronized、ReentrantLock
+ * <p>
+ * 对应 cas.LongAdderVSAtomicLongTest、cas.TestCompareAndSwap、plus.PlusTest 中的对比，
+ * 线程数由 BenchmarkRunner 的 jmh.threads 指定，所有线程共享同一个计数器
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CounterBenchmark
+{
+    private static final Unsafe unsafe = JvmUtil.getUnsafe();
+    private static final long VALUE_OFFSET;
+
+    static
+    {
+        try
+        {
+            VALUE_OFFSET = unsafe.objectFieldOffset(CounterBenchmark.class.getDeclaredField("value"));
+        } catch (Exception ex)
+        {
+            throw new Error(ex);
+        }
+    }
+
+    private final AtomicLong atomicLong = new AtomicLong();
+    private final LongAdder longAdder = new LongAdder();
+    private final SafePlus safePlus = new SafePlus();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long lockedValue;
+    //Unsafe CAS 自旋的目标字段
+    private volatile long value;
+
+    @Benchmark
+    public long atomicLong()
+    {
+        return atomicLong.incrementAndGet();
+    }
+
+    @Benchmark
+    public void longAdder()
+    {
+        longAdder.increment();
+    }
+
+    @Benchmark
+    public long unsafeCas()
+    {
+        long old;
+        do
+        {
+            old = value;
+        } while (!unsafe.compareAndSwapLong(this, VALUE_OFFSET, old, old + 1));
+        return old + 1;
+    }
+
+    @Benchmark
+    public void synchronizedPlus()
+    {
+        safePlus.selfPlus();
+    }
+
+    @Benchmark
+    public long reentrantLock()
+    {
+        lock.lock();
+        try
+        {
+            return ++lockedValue;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.crazymakercircle.benchmark;
+
+import com.example.crazymakercircle.threadpool.KeyedSequentialExecutor;
+import com.example.crazymakercircle.threadpool.OverloadPolicy;
+import com.example.crazymakercircle.util.ThreadUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 顺序执行的吞吐量：单线程的 seq 线程池（ThreadUtil.seqExecute(Runnable)）
+ * 与按 key 分段的 KeyedSequentialExecutor，每批提交 BATCH 个任务并等待全部完成
+ * keys 为 1 时分段退化为单线程，keys 越多、CPU 核数越多，分段的优势越明显
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class KeyedSequentialBenchmark
+{
+    private static final int BATCH = 10_000;
+
+    @Param({"1", "16", "1024"})
+    public int keys;
+
+    //每个任务模拟的计算量，见 Blackhole.consumeCPU
+    @Param({"200"})
+    public long work;
+
+    private KeyedSequentialExecutor keyed;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        keyed = new KeyedSequentialExecutor("bench", Runtime.getRuntime().availableProcessors() * 2,
+                BATCH, OverloadPolicy.BLOCK, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException
+    {
+        keyed.shutdown();
+        keyed.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void singleThread() throws InterruptedException
+    {
+        CountDownLatch latch = new CountDownLatch(BATCH);
+        Runnable task = task(latch);
+        for (int i = 0; i < BATCH; i++)
+        {
+            ThreadUtil.seqExecute(task);
+        }
+        latch.await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void keyed() throws InterruptedException
+    {
+        CountDownLatch latch = new CountDownLatch(BATCH);
+        Runnable task = task(latch);
+        for (int i = 0; i < BATCH; i++)
+        {
+            keyed.execute(i % keys, task);
+        }
+        latch.await();
+    }
+
+    private Runnable task(CountDownLatch latch)
+    {
+        return () ->
+        {
+            Blackhole.consumeCPU(work);
+            latch.countDown();
+        };
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.crazymakercircle.benchmark;
+
+import com.example.crazymakercircle.petstore.goods.Goods;
+import com.example.crazymakercircle.petstore.goods.IGoods;
+import com.example.crazymakercircle.producerandcomsumer.store.CommunicatePetStore;
+import com.example.crazymakercircle.producerandcomsumer.store.PetStore3;
+import com.example.crazymakercircle.producerandcomsumer.store.PetStore4;
+import com.example.crazymakercircle.producerandcomsumer.store.PetStore5;
+import com.example.crazymakercircle.producerandcomsumer.store.TwoLockDataBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 宠物店缓冲区的吞吐量：PetStore3、PetStore4、PetStore5 的 wait/notify，
+ * CommunicatePetStore 的三个监视器，以及 ReentrantLock + Condition 的 TwoLockDataBuffer
+ * <p>
+ * JMH 的线程是消费者，每次调用取到一个商品才返回，消费者数由 BenchmarkRunner 的 jmh.threads 指定，
+ * 按 -Djmh.threads=1,4,16 运行；producers 条后台线程不停地生产。测得的是每秒成功取出的商品数。
+ * <p>
+ * PetStore、PetStore2 没有任何同步，多线程下 ArrayList 会被破坏，不参与比较。
+ * PetStore3~5 的 produce 没有递增 amount，本身并不限制数量，为了与有界的缓冲区可比，
+ * 这里在外部按相同的容量限制生产者；它们在空时抛出 IndexOutOfBoundsException，消费者让出 CPU 后重试，
+ * 与它们自带的消费者线程的处理方式相同。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PetStoreBenchmark
+{
+    private static final int CAPACITY = CommunicatePetStore.MAX_AMOUNT;
+    private static final PrintStream NULL_OUT = new PrintStream(OutputStream.nullOutputStream());
+
+    @Param({"petStore3", "petStore4", "petStore5", "communicate", "twoLock"})
+    public String store;
+
+    @Param({"1", "4", "16"})
+    public int producers;
+
+    private Store target;
+    private Thread[] producerThreads;
+    private volatile boolean running;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        //PetStore 在锁内输出日志，输出到丢弃内容的流，只保留格式化与入队的开销
+        originalOut = System.out;
+        System.setOut(NULL_OUT);
+        switch (store)
+        {
+            case "petStore3":
+                target = new GatedStore(() -> PetStore3.inst().produce(), () -> PetStore3.inst().consume());
+                break;
+            case "petStore4":
+                target = new GatedStore(() -> PetStore4.inst().produce(), () -> PetStore4.inst().consume());
+                break;
+            case "petStore5":
+                target = new GatedStore(() -> PetStore5.inst().produce(), () -> PetStore5.inst().consume());
+                break;
+            case "communicate":
+                target = new CommunicateStore();
+                break;
+            default:
+                target = new TwoLockStore();
+        }
+        running = true;
+        producerThreads = new Thread[producers];
+        for (int i = 0; i < producers; i++)
+        {
+            producerThreads[i] = new Thread(this::produceLoop, "bench-producer-" + i);
+            producerThreads[i].setDaemon(true);
+            producerThreads[i].start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException
+    {
+        running = false;
+        for (Thread t : producerThreads)
+        {
+            t.interrupt();
+        }
+        for (Thread t : producerThreads)
+        {
+            t.join(1000);
+        }
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void consume() throws InterruptedException
+    {
+        while (!target.consume())
+        {
+            Thread.yield();
+        }
+    }
+
+    private void produceLoop()
+    {
+        try
+        {
+            while (running)
+            {
+                target.produce();
+            }
+        } catch (InterruptedException e)
+        {
+            //结束
+        }
+    }
+
+    /**
+     * 被比较的缓冲区的统一接口
+     */
+    interface Store
+    {
+        void produce() throws InterruptedException;
+
+        /**
+         * @return 取到商品时返回 true
+         */
+        boolean consume() throws InterruptedException;
+    }
+
+    /**
+     * PetStore3~5：外部按容量限制生产者，空时的 IndexOutOfBoundsException 视为没有取到
+     */
+    final class GatedStore implements Store
+    {
+        private final Runnable produce;
+        private final Runnable consume;
+        //已生产、未消费的数量
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        GatedStore(Runnable produce, Runnable consume)
+        {
+            this.produce = produce;
+            this.consume = consume;
+        }
+
+        @Override
+        public void produce() throws InterruptedException
+        {
+            while (inFlight.get() >= CAPACITY)
+            {
+                if (!running)
+                {
+                    throw new InterruptedException();
+                }
+                Thread.yield();
+            }
+            produce.run();
+            inFlight.incrementAndGet();
+        }
+
+        @Override
+        public boolean consume()
+        {
+            try
+            {
+                consume.run();
+            } catch (IndexOutOfBoundsException e)
+            {
+                return false;
+            }
+            inFlight.decrementAndGet();
+            return true;
+        }
+    }
+
+    static final class CommunicateStore implements Store
+    {
+        private final CommunicatePetStore.DateBuffer<IGoods> buffer = new CommunicatePetStore.DateBuffer<>();
+
+        @Override
+        public void produce() throws InterruptedException
+        {
+            try
+            {
+                buffer.add(Goods.produceOne());
+            } catch (InterruptedException e)
+            {
+                throw e;
+            } catch (Exception e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public boolean consume() throws InterruptedException
+        {
+            try
+            {
+                //双重检查失败时返回 null
+                return buffer.fetch() != null;
+            } catch (InterruptedException e)
+            {
+                throw e;
+            } catch (Exception e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    static final class TwoLockStore implements Store
+    {
+        private final TwoLockDataBuffer<IGoods> buffer = new TwoLockDataBuffer<>(CAPACITY);
+
+        @Override
+        public void produce() throws InterruptedException
+        {
+            buffer.put(Goods.produceOne());
+        }
+
+        @Override
+        public boolean consume() throws InterruptedException
+        {
+            return buffer.take() != null;
+        }
+    }
+}
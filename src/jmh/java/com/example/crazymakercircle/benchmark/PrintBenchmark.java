@@ -0,0 +1,91 @@
+package com.example.crazymakercircle.benchmark;
+
+import com.example.crazymakercircle.util.AsyncLogSink;
+import com.example.crazymakercircle.util.ThreadUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志输出的调用方开销：
+ * 原来的 Print 路径（每行提交一个任务到单线程的定时线程池，再 println），
+ * 原来的 cfo（在此基础上加 synchronized），以及 AsyncLogSink
+ * 输出目标都是丢弃内容的流，只比较调用方的开销与队列的竞争
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PrintBenchmark
+{
+    private static final PrintStream NULL_OUT = new PrintStream(OutputStream.nullOutputStream());
+    private static final Object LOCK = new Object();
+
+    private AsyncLogSink sink;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        sink = new AsyncLogSink("bench-sink", 8192, AsyncLogSink.Overflow.BLOCK, OutputStream.nullOutputStream());
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() throws InterruptedException
+    {
+        //等待积压的输出完成，避免定时线程池的队列无限增长
+        CountDownLatch latch = new CountDownLatch(1);
+        ThreadUtil.seqExecute(latch::countDown);
+        latch.await();
+        sink.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void close()
+    {
+        sink.close();
+    }
+
+    private static String line()
+    {
+        return "[" + Thread.currentThread().getName() + "]" + "：" + "benchmark line";
+    }
+
+    @Benchmark
+    public void executorPrint()
+    {
+        String cft = line();
+        ThreadUtil.seqExecute(() -> NULL_OUT.println(cft));
+    }
+
+    @Benchmark
+    public void synchronizedExecutorPrint()
+    {
+        synchronized (LOCK)
+        {
+            String cft = line();
+            ThreadUtil.seqExecute(() -> NULL_OUT.println(cft));
+        }
+    }
+
+    @Benchmark
+    public boolean asyncSink()
+    {
+        return sink.offer(line());
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.crazymakercircle.benchmark;
+
+import com.example.crazymakercircle.producerandcomsumer.store.IdleStrategy;
+import com.example.crazymakercircle.producerandcomsumer.store.MpmcRingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界缓冲区的生产者-消费者吞吐量：ArrayBlockingQueue、LinkedBlockingQueue 与 MpmcRingBuffer
+ * <p>
+ * JMH 的线程是生产者（线程数由 BenchmarkRunner 的 jmh.threads 指定），每次调用阻塞式地放入一个元素；
+ * consumers 条后台线程阻塞式地取出，batch 大于 1 时按批取出（drainTo / drain）。
+ * 缓冲区有界，放入的速率最终受取出的速率限制，测得的是整条通道的吞吐量。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RingBufferBenchmark
+{
+    private static final int CAPACITY = 1024;
+    private static final Integer ELEMENT = 42;
+    //先自旋，再让出 CPU，之后短暂休眠
+    private static final IdleStrategy IDLE = IdleStrategy.backoff(64, 16, 1_000L, 100_000L);
+
+    @Param({"abq", "lbq", "ring"})
+    public String buffer;
+
+    @Param({"1", "4"})
+    public int consumers;
+
+    @Param({"1", "64"})
+    public int batch;
+
+    private Channel channel;
+    private Thread[] consumerThreads;
+    //消费者取出的元素数，避免取出操作被优化掉
+    private final LongAdder consumed = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        switch (buffer)
+        {
+            case "abq":
+                channel = new QueueChannel(new ArrayBlockingQueue<>(CAPACITY));
+                break;
+            case "lbq":
+                channel = new QueueChannel(new LinkedBlockingQueue<>(CAPACITY));
+                break;
+            default:
+                channel = new RingChannel(new MpmcRingBuffer<>(CAPACITY));
+        }
+        consumerThreads = new Thread[consumers];
+        for (int i = 0; i < consumers; i++)
+        {
+            consumerThreads[i] = new Thread(this::consume, "bench-consumer-" + i);
+            consumerThreads[i].setDaemon(true);
+            consumerThreads[i].start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException
+    {
+        for (Thread t : consumerThreads)
+        {
+            t.interrupt();
+        }
+        for (Thread t : consumerThreads)
+        {
+            t.join(1000);
+        }
+    }
+
+    @Benchmark
+    public void transfer() throws InterruptedException
+    {
+        channel.put(ELEMENT);
+    }
+
+    private void consume()
+    {
+        try
+        {
+            while (true)
+            {
+                consumed.add(channel.take(batch));
+            }
+        } catch (InterruptedException e)
+        {
+            //结束
+        }
+    }
+
+    /**
+     * 被比较的缓冲区的统一接口
+     */
+    interface Channel
+    {
+        void put(Integer e) throws InterruptedException;
+
+        /**
+         * 阻塞到至少取出一个元素，最多取出 max 个
+         */
+        int take(int max) throws InterruptedException;
+    }
+
+    static final class QueueChannel implements Channel
+    {
+        private final BlockingQueue<Integer> queue;
+        private final ThreadLocal<List<Integer>> batchList = ThreadLocal.withInitial(ArrayList::new);
+
+        QueueChannel(BlockingQueue<Integer> queue)
+        {
+            this.queue = queue;
+        }
+
+        @Override
+        public void put(Integer e) throws InterruptedException
+        {
+            queue.put(e);
+        }
+
+        @Override
+        public int take(int max) throws InterruptedException
+        {
+            queue.take();
+            if (max == 1)
+            {
+                return 1;
+            }
+            List<Integer> list = batchList.get();
+            int n = queue.drainTo(list, max - 1);
+            list.clear();
+            return n + 1;
+        }
+    }
+
+    static final class RingChannel implements Channel
+    {
+        private final MpmcRingBuffer<Integer> ring;
+
+        RingChannel(MpmcRingBuffer<Integer> ring)
+        {
+            this.ring = ring;
+        }
+
+        @Override
+        public void put(Integer e) throws InterruptedException
+        {
+            ring.put(e, IDLE);
+        }
+
+        @Override
+        public int take(int max) throws InterruptedException
+        {
+            if (max == 1)
+            {
+                ring.take(IDLE);
+                return 1;
+            }
+            int attempts = 0;
+            int n;
+            while ((n = ring.drain(e -> { }, max)) == 0)
+            {
+                if (Thread.interrupted())
+                {
+                    throw new InterruptedException();
+                }
+                IDLE.idle(++attempts);
+            }
+            return n;
+        }
+    }
+}
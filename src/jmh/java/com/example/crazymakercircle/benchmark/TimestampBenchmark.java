@@ -0,0 +1,82 @@
+package com.example.crazymakercircle.benchmark;
+
+import com.example.crazymakercircle.util.DateUtil;
+import com.example.crazymakercircle.util.TimestampFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 时间戳格式化的开销：
+ * 原来的 DateUtil.getNow()（每次创建 SimpleDateFormat），每次用 DateTimeFormatter 格式化，
+ * 以及按秒缓存的 TimestampFormatter（返回字符串、写入 char[]、写入直接内存 ByteBuffer、带毫秒）
+ * 配合 -prof gc 可以看到缓存方式每次调用的分配量为 0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TimestampBenchmark
+{
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final TimestampFormatter MILLIS_FORMATTER = TimestampFormatter.of("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final char[] chars = new char[32];
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(32);
+
+    @Benchmark
+    public String simpleDateFormat()
+    {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        return sdf.format(new Date().getTime());
+    }
+
+    @Benchmark
+    public String dateTimeFormatter()
+    {
+        return DATE_TIME_FORMATTER.format(LocalDateTime.now());
+    }
+
+    @Benchmark
+    public String cachedString()
+    {
+        return DateUtil.getNow();
+    }
+
+    @Benchmark
+    public char[] cachedChars()
+    {
+        DateUtil.NOW_FORMATTER.writeTo(System.currentTimeMillis(), chars, 0);
+        return chars;
+    }
+
+    @Benchmark
+    public ByteBuffer cachedByteBuffer()
+    {
+        buffer.clear();
+        DateUtil.NOW_FORMATTER.writeTo(System.currentTimeMillis(), buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public char[] cachedMillisChars()
+    {
+        MILLIS_FORMATTER.writeTo(System.currentTimeMillis(), chars, 0);
+        return chars;
+    }
+}
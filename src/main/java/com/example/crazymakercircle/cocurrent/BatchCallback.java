@@ -0,0 +1,18 @@
+/**
+ * Created by 尼恩 at 疯狂创客圈
+ */
+
+package com.example.crazymakercircle.cocurrent;
+
+
+public interface BatchCallback
+{
+
+    /**
+     * 一批任务全部执行完成后回调一次
+     *
+     * @param successCount 成功的任务数
+     * @param failureCount 失败的任务数
+     */
+    void onBatchComplete(int successCount, int failureCount);
+}
@@ -5,124 +5,374 @@
 package com.example.crazymakercircle.cocurrent;
 
 
-import com.google.common.util.concurrent.FutureCallback;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
-import org.apache.log4j.Logger;
+import com.example.crazymakercircle.util.ShutdownHookThread;
+import com.example.crazymakercircle.util.ThreadUtil;
+import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
-
-public class CallbackTaskScheduler extends Thread
+/**
+ * 带回调的异步任务调度器
+ * <p>
+ * add() 直接把任务提交给线程池，并返回一个 CompletableFuture，
+ * 调用方既可以通过 CallbackTask 的 onSuccess/onFailure 接收结果，也可以在返回的 future 上继续编排。
+ * <p>
+ * 回调默认在完成任务的线程中直接执行（执行任务的池线程，或者触发超时、取消的线程），
+ * 也可以传入 callbackExecutor，把回调交给指定的线程池执行。
+ */
+@Slf4j
+public class CallbackTaskScheduler
 {
-    private final Logger logger = Logger.getLogger(this.getClass());
-    private ConcurrentLinkedQueue<CallbackTask> executeTaskQueue =
-            new ConcurrentLinkedQueue<CallbackTask>();// 任务队列
-    private long sleepTime = 200;// 线程休眠时间
-    private ExecutorService jPool =
-            Executors.newFixedThreadPool(10);
-
-    ListeningExecutorService gPool =
-            MoreExecutors.listeningDecorator(jPool);
-
+    private final ExecutorService jPool = new ThreadPoolExecutor(
+            10,
+            10,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadUtil.CustomThreadFactory("callback"));
 
     private static CallbackTaskScheduler inst = new CallbackTaskScheduler();
 
     private CallbackTaskScheduler()
     {
-        this.start();
+        //JVM关闭时的钩子函数
+        Runtime.getRuntime().addShutdownHook(
+                new ShutdownHookThread("回调任务调度器", new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        //优雅关闭线程池
+                        ThreadUtil.shutdownThreadPoolGracefully(jPool);
+                        return null;
+                    }
+                }));
     }
 
     /**
-     * 添加任务
+     * 添加任务，回调在完成任务的线程中直接执行
      *
      * @param executeTask
      */
+    public static <R> CompletableFuture<R> add(CallbackTask<R> executeTask)
+    {
+        return inst.submit(executeTask, null, 0, null);
+    }
 
+    /**
+     * 添加任务，回调交给 callbackExecutor 执行
+     *
+     * @param executeTask
+     * @param callbackExecutor 执行 onSuccess/onFailure 的线程池
+     */
+    public static <R> CompletableFuture<R> add(CallbackTask<R> executeTask, Executor callbackExecutor)
+    {
+        return inst.submit(executeTask, callbackExecutor, 0, null);
+    }
 
-    public static <R> void add(CallbackTask<R> executeTask)
+    /**
+     * 添加任务，超时后 future 以 TimeoutException 结束，并回调 onFailure
+     *
+     * @param executeTask
+     * @param timeout     超时时长
+     * @param unit        超时时长的单位
+     */
+    public static <R> CompletableFuture<R> add(CallbackTask<R> executeTask, long timeout, TimeUnit unit)
     {
-        inst.executeTaskQueue.add(executeTask);
+        return inst.submit(executeTask, null, timeout, unit);
     }
 
-    @Override
-    public void run()
+    /**
+     * 添加任务，指定回调线程池与超时时长
+     *
+     * @param executeTask
+     * @param callbackExecutor 执行 onSuccess/onFailure 的线程池，为 null 时在完成任务的线程中直接执行
+     * @param timeout          超时时长，小于等于 0 表示不超时
+     * @param unit             超时时长的单位
+     */
+    public static <R> CompletableFuture<R> add(CallbackTask<R> executeTask, Executor callbackExecutor,
+                                               long timeout, TimeUnit unit)
     {
-        while (true)
-        {
-            handleTask();// 处理任务
-            threadSleep(sleepTime);
-        }
+        return inst.submit(executeTask, callbackExecutor, timeout, unit);
+    }
+
+    /**
+     * 批量添加任务
+     * 整批任务作为一个执行单元提交给线程池，在同一个线程中依次执行，
+     * 不为每个任务创建 future
+     *
+     * @param executeTasks
+     */
+    public static <R> void addAll(Collection<? extends CallbackTask<R>> executeTasks)
+    {
+        addAll(executeTasks, null);
+    }
+
+    /**
+     * 批量添加任务，整批完成后汇总成功与失败的数量回调 batchCallback
+     *
+     * @param executeTasks
+     * @param batchCallback 可以为 null
+     */
+    public static <R> void addAll(Collection<? extends CallbackTask<R>> executeTasks,
+                                  BatchCallback batchCallback)
+    {
+        //复制一份任务引用，调用方之后修改集合不影响本批次
+        List<CallbackTask<R>> batch = new ArrayList<>(executeTasks);
+        inst.jPool.execute(new BatchRunnable<>(batch, batchCallback));
     }
 
-    private void threadSleep(long time)
+    /**
+     * 执行任务操作
+     *
+     * @param executeTask
+     */
+    private <R> CompletableFuture<R> submit(CallbackTask<R> executeTask, Executor callbackExecutor,
+                                            long timeout, TimeUnit unit)
     {
+        //future 本身就是提交给线程池的 Runnable，不再额外包装
+        CallbackFuture<R> future = new CallbackFuture<>(executeTask, callbackExecutor);
+        if (timeout > 0)
+        {
+            future.orTimeout(timeout, unit);
+        }
         try
         {
-            sleep(time);
-        } catch (InterruptedException e)
+            jPool.execute(future);
+        } catch (RejectedExecutionException e)
         {
-            logger.error(e);
+            future.completeExceptionally(e);
         }
+        return future;
     }
 
     /**
-     * 处理任务队列，检查其中是否有任务
+     * 任务的 future，同时也是提交给线程池的执行单元
+     * 无论以何种方式结束（正常完成、异常、超时、取消），onSuccess/onFailure 只回调一次
      */
-    private void handleTask()
+    static class CallbackFuture<R> extends CompletableFuture<R> implements Runnable
     {
-        try
+        private static final AtomicIntegerFieldUpdater<CallbackFuture> FIRED =
+                AtomicIntegerFieldUpdater.newUpdater(CallbackFuture.class, "fired");
+        private static final AtomicIntegerFieldUpdater<CallbackFuture> INTERRUPT =
+                AtomicIntegerFieldUpdater.newUpdater(CallbackFuture.class, "interruptState");
+
+        //cancel(true) 与 run() 结束之间的握手，与 FutureTask 的 INTERRUPTING/INTERRUPTED 相同
+        static final int NONE = 0;
+        static final int INTERRUPTING = 1;
+        static final int INTERRUPTED = 2;
+        //run() 已经结束，之后的取消不再中断该线程
+        static final int FINISHED = 3;
+
+        final CallbackTask<R> executeTask;
+        final Executor callbackExecutor;
+
+        //正在执行任务的线程，用于 cancel(true) 时中断
+        volatile Thread runner;
+        //回调是否已经触发
+        volatile int fired;
+        volatile int interruptState = NONE;
+
+        CallbackFuture(CallbackTask<R> executeTask, Executor callbackExecutor)
+        {
+            this.executeTask = executeTask;
+            this.callbackExecutor = callbackExecutor;
+        }
+
+        @Override
+        public void run()
         {
-            CallbackTask executeTask = null;
-            while (executeTaskQueue.peek() != null)
+            //先登记执行线程，再检查是否已经结束：
+            //在检查之前取消的不再执行，在检查之后取消的一定能读到 runner 并中断
+            runner = Thread.currentThread();
+            try
+            {
+                //已经超时或者被取消，不再执行
+                if (!isDone())
+                {
+                    complete(executeTask.execute());
+                }
+            } catch (Throwable t)
             {
-                executeTask = executeTaskQueue.poll();
-                handleTask(executeTask);
+                completeExceptionally(t);
+            } finally
+            {
+                handlePossibleCancellationInterrupt();
+                runner = null;
             }
-        } catch (Exception e)
+        }
+
+        /**
+         * 确保取消时的中断只落在本任务上：
+         * 没有取消时标记为 FINISHED，之后的 cancel(true) 不再中断；
+         * 正在中断时等待中断送达，再清除中断标志，不影响池线程执行的下一个任务
+         */
+        private void handlePossibleCancellationInterrupt()
         {
-            logger.error(e);
+            if (INTERRUPT.compareAndSet(this, NONE, FINISHED))
+            {
+                return;
+            }
+            while (interruptState == INTERRUPTING)
+            {
+                Thread.yield();
+            }
+            if (interruptState == INTERRUPTED)
+            {
+                Thread.interrupted();
+            }
         }
-    }
 
-    /**
-     * 执行任务操作
-     *
-     * @param executeTask
-     */
-    private <R> void handleTask(CallbackTask<R> executeTask)
-    {
+        @Override
+        public boolean complete(R value)
+        {
+            boolean completed = super.complete(value);
+            if (completed)
+            {
+                fireSuccess(value);
+            }
+            return completed;
+        }
 
-        ListenableFuture<R> future = gPool.submit(new Callable<R>()
+        @Override
+        public boolean completeExceptionally(Throwable ex)
         {
-            public R call() throws Exception
+            boolean completed = super.completeExceptionally(ex);
+            if (completed)
             {
+                fireFailure(ex);
+            }
+            return completed;
+        }
 
-                R r = executeTask.execute();
-                return r;
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            boolean done = isDone();
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && !done)
+            {
+                if (mayInterruptIfRunning && INTERRUPT.compareAndSet(this, NONE, INTERRUPTING))
+                {
+                    Thread t = runner;
+                    if (t != null)
+                    {
+                        t.interrupt();
+                        interruptState = INTERRUPTED;
+                    } else
+                    {
+                        //还没有开始执行，run() 检查 isDone() 后不会执行
+                        interruptState = NONE;
+                    }
+                }
+                fireFailure(new CancellationException());
             }
+            return cancelled;
+        }
 
-        });
+        private void fireSuccess(R r)
+        {
+            if (!FIRED.compareAndSet(this, 0, 1))
+            {
+                return;
+            }
+            if (null == callbackExecutor)
+            {
+                invokeSuccess(executeTask, r);
+            } else
+            {
+                callbackExecutor.execute(() -> invokeSuccess(executeTask, r));
+            }
+        }
 
-        Futures.addCallback(future, new FutureCallback<R>()
+        private void fireFailure(Throwable cause)
         {
-            public void onSuccess(R r)
+            if (!FIRED.compareAndSet(this, 0, 1))
             {
-                executeTask.onSuccess(r);
+                return;
             }
+            if (null == callbackExecutor)
+            {
+                invokeFailure(executeTask, cause);
+            } else
+            {
+                callbackExecutor.execute(() -> invokeFailure(executeTask, cause));
+            }
+        }
+    }
+
+    /**
+     * 批量任务的执行单元
+     */
+    static class BatchRunnable<R> implements Runnable
+    {
+        List<CallbackTask<R>> batch;
+        BatchCallback batchCallback;
+
+        BatchRunnable(List<CallbackTask<R>> batch, BatchCallback batchCallback)
+        {
+            this.batch = batch;
+            this.batchCallback = batchCallback;
+        }
 
-            public void onFailure(Throwable t)
+        public void run()
+        {
+            int successCount = 0;
+            int failureCount = 0;
+            for (CallbackTask<R> executeTask : batch)
+            {
+                R r;
+                try
+                {
+                    r = executeTask.execute();
+                } catch (Throwable t)
+                {
+                    failureCount++;
+                    invokeFailure(executeTask, t);
+                    continue;
+                }
+                successCount++;
+                invokeSuccess(executeTask, r);
+            }
+            if (null != batchCallback)
             {
-                executeTask.onFailure(t);
+                batchCallback.onBatchComplete(successCount, failureCount);
             }
-        });
+        }
+    }
 
+    private static <R> void invokeSuccess(CallbackTask<R> executeTask, R r)
+    {
+        try
+        {
+            executeTask.onSuccess(r);
+        } catch (Throwable t)
+        {
+            log.error("onSuccess error ==[{}]", t.getMessage(), t);
+        }
+    }
 
+    private static <R> void invokeFailure(CallbackTask<R> executeTask, Throwable cause)
+    {
+        try
+        {
+            executeTask.onFailure(cause);
+        } catch (Throwable t)
+        {
+            log.error("onFailure error ==[{}]", t.getMessage(), t);
+        }
     }
 
 }
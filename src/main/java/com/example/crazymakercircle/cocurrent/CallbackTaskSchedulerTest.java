@@ -0,0 +1,86 @@
+package com.example.crazymakercircle.cocurrent;
+
+import com.example.crazymakercircle.util.Print;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 对比 CallbackTaskScheduler 逐个提交与批量提交时，每个任务的平均开销
+ */
+public class CallbackTaskSchedulerTest
+{
+    // 任务总数
+    final int TASK_AMOUNT = 1000000;
+    // 每批的任务数
+    final int BATCH_SIZE = 1000;
+
+    static class CountTask implements CallbackTask<Integer>
+    {
+        final CountDownLatch latch;
+
+        CountTask(CountDownLatch latch)
+        {
+            this.latch = latch;
+        }
+
+        @Override
+        public Integer execute()
+        {
+            return 1;
+        }
+
+        @Override
+        public void onSuccess(Integer r)
+        {
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(Throwable t)
+        {
+            latch.countDown();
+        }
+    }
+
+    @org.junit.Test
+    public void testAddOneByOne() throws InterruptedException
+    {
+        CountDownLatch latch = new CountDownLatch(TASK_AMOUNT);
+        CountTask task = new CountTask(latch);
+        long start = System.nanoTime();
+        for (int i = 0; i < TASK_AMOUNT; i++)
+        {
+            CallbackTaskScheduler.add(task);
+        }
+        latch.await();
+        printCost("逐个提交", start);
+    }
+
+    @org.junit.Test
+    public void testAddAll() throws InterruptedException
+    {
+        CountDownLatch latch = new CountDownLatch(TASK_AMOUNT);
+        CountTask task = new CountTask(latch);
+        List<CountTask> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++)
+        {
+            batch.add(task);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < TASK_AMOUNT / BATCH_SIZE; i++)
+        {
+            CallbackTaskScheduler.addAll(batch);
+        }
+        latch.await();
+        printCost("批量提交", start);
+    }
+
+    private void printCost(String name, long start)
+    {
+        long cost = System.nanoTime() - start;
+        Print.tcfo(name + " 总耗时(ms)：" + cost / 1000000);
+        Print.tcfo(name + " 每个任务的开销(ns)：" + cost / TASK_AMOUNT);
+    }
+}
@@ -1,167 +1,294 @@
-///**
-// * Created by 尼恩 at 疯狂创客圈
-// */
-//
-//package com.example.crazymakercircle.cocurrent;
-//
-//
-//import com.lmax.disruptor.BlockingWaitStrategy;
-//import com.lmax.disruptor.EventFactory;
-//import com.lmax.disruptor.EventHandler;
-//import com.lmax.disruptor.EventTranslatorOneArg;
-//import com.lmax.disruptor.ExceptionHandler;
-//import com.lmax.disruptor.RingBuffer;
-//import com.lmax.disruptor.WorkHandler;
-//import com.lmax.disruptor.dsl.Disruptor;
-//import com.lmax.disruptor.dsl.ProducerType;
-//import lombok.Data;
-//import lombok.extern.slf4j.Slf4j;
-//
-//import java.util.concurrent.Executors;
-//
-//@Slf4j
-//public class DisruptorTaskScheduler
-//{
-//    private static final int RING_BUFFER_SIZE = 1024 * 1024;
-//    private static final int CONCURRENT_SIZE = 10;
-//    private static DisruptorTaskScheduler inst = new DisruptorTaskScheduler();
-//    private TaskScheduler scheduler = new TaskScheduler();
-//
-//
-//    private DisruptorTaskScheduler()
-//    {
-//        scheduler.start();
-//    }
-//
-//    /**
-//     * 添加任务
-//     *
-//     * @param executeTask
-//     */
-//    public static void add(Runnable executeTask)
-//    {
-//        inst.scheduler.sendNotify(executeTask);
-//
-//    }
-//
-//
-//    @Data
-//    public class NotifyEvent
-//    {
-//        private Runnable target;
-//    }
-//
-//    //   消息工厂,用于生产消息
-//    public class NotifyEventFactory implements EventFactory
-//    {
-//        @Override
-//        public Object newInstance()
-//        {
-//            return new NotifyEvent();
-//        }
-//    }
-//
-//    //创建消费者，此处用于处理业务逻辑
-//    public class NotifyEventHandler implements EventHandler<NotifyEvent>, WorkHandler<NotifyEvent>
-//    {
-//
-//        @Override
-//        public void onEvent(NotifyEvent notifyEvent, long l, boolean b) throws Exception
-//        {
-//            this.onEvent(notifyEvent);
-//            log.debug("接收任务 ==[{}]!", notifyEvent.getTarget());
-//
-//        }
-//
-//        @Override
-//        public void onEvent(NotifyEvent notifyEvent) throws Exception
-//        {
-//            notifyEvent.getTarget().run();
-//            log.debug("执行完成 ==[{}]!", notifyEvent.getTarget());
-//        }
-//    }
-//
-//    //    自定义异常
-//    public class NotifyEventHandlerException implements ExceptionHandler
-//    {
-//        @Override
-//        public void handleEventException(Throwable throwable, long sequence, Object event)
-//        {
-//            throwable.fillInStackTrace();
-//            log.error("process  error ==[{}] ", throwable.getMessage());
-//        }
-//
-//        @Override
-//        public void handleOnStartException(Throwable throwable)
-//        {
-//            log.error("start disruptor error ==[{}]!", throwable.getMessage());
-//        }
-//
-//        @Override
-//        public void handleOnShutdownException(Throwable throwable)
-//        {
-//            log.error("shutdown disruptor error ==[{}]!", throwable.getMessage());
-//        }
-//    }
-//
-//    //对Disruptor进行初始化
-//    public class TaskScheduler
-//    {
-//        private boolean isRunning = false;
-//        private Disruptor<NotifyEvent> disruptor;
-//
-//        public void destroy() throws Exception
-//        {
-//            disruptor.shutdown();
-//        }
-//
-//        synchronized public void start()
-//        {
-//            if (!isRunning)
-//            {
-//                disruptor = new Disruptor<NotifyEvent>(
-//                        new NotifyEventFactory(),
-//                        RING_BUFFER_SIZE,
-//                        Executors.defaultThreadFactory(),
-//                        ProducerType.MULTI,
-////                        ProducerType.SINGLE,
-//                        new BlockingWaitStrategy());
-//                disruptor.setDefaultExceptionHandler(new NotifyEventHandlerException());
-//
-//                // 创建10个消费者来处理同一个生产者发的消息(这10个消费者不重复消费消息)
-//                NotifyEventHandler[] consumers = new NotifyEventHandler[CONCURRENT_SIZE];
-//                for (int i = 0; i < consumers.length; i++)
-//                {
-//                    consumers[i] = new NotifyEventHandler();
-//
-//                }
-////                顺序消息
-////                disruptor.handleEventsWith(consumers);
-//                //并发消费
-//                disruptor.handleEventsWithWorkerPool(consumers);
-//
-//                disruptor.start();
-//                isRunning = true;
-//            }
-//
-//        }
-//
-//
-//        public void sendNotify(Runnable target)
-//        {
-//            RingBuffer<NotifyEvent> ringBuffer = disruptor.getRingBuffer();
-//            ringBuffer.publishEvent(new EventTranslatorOneArg<NotifyEvent, Runnable>()
-//            {
-//                @Override
-//                public void translateTo(NotifyEvent event, long sequence, Runnable target)
-//                {
-//                    event.setTarget(target);
-//                }
-//            }, target);
-//            //lambda式写法，
-//            // ringBuffer.publishEvent((event, sequence, data) -> event.setMessage(data), message);
-//        }
-//    }
-//
-//
-//}
+/**
+ * Created by 尼恩 at 疯狂创客圈
+ */
+
+package com.example.crazymakercircle.cocurrent;
+
+
+import com.example.crazymakercircle.util.ShutdownHookThread;
+import com.example.crazymakercircle.util.ThreadUtil;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.WorkHandler;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 基于 Disruptor 环形队列的任务调度器
+ * <p>
+ * 环形队列中的事件槽在启动时一次性预分配，提交任务时只是把任务引用写入槽位，
+ * 使用的 EventTranslator 是无状态的静态常量，所以提交过程不产生额外的对象分配。
+ * <p>
+ * 通过系统属性配置默认实例：
+ * disruptor.scheduler.ring.size      环形队列长度（2的幂），默认 65536
+ * disruptor.scheduler.consumer.size  消费者数量，默认 10
+ * disruptor.scheduler.wait.strategy  等待策略：blocking / yielding / busy_spin，默认 blocking
+ * disruptor.scheduler.consume.mode   消费方式：worker_pool（并发消费） / ordered（单线程顺序消费），默认 worker_pool
+ */
+@Slf4j
+public class DisruptorTaskScheduler
+{
+    public static final String RING_SIZE = "disruptor.scheduler.ring.size";
+    public static final String CONSUMER_SIZE = "disruptor.scheduler.consumer.size";
+    public static final String WAIT_STRATEGY = "disruptor.scheduler.wait.strategy";
+    public static final String CONSUME_MODE = "disruptor.scheduler.consume.mode";
+
+    private static final int DEFAULT_RING_SIZE = 64 * 1024;
+    private static final int DEFAULT_CONSUMER_SIZE = 10;
+
+    /**
+     * 消费者的等待策略
+     */
+    public enum WaitStrategyType
+    {
+        //加锁等待，CPU 占用最低，延迟最高
+        BLOCKING,
+        //自旋后让出 CPU，延迟低，空闲时仍会占用 CPU
+        YIELDING,
+        //纯自旋，延迟最低，每个消费者独占一个 CPU 核
+        BUSY_SPIN;
+
+        WaitStrategy create()
+        {
+            switch (this)
+            {
+                case YIELDING:
+                    return new YieldingWaitStrategy();
+                case BUSY_SPIN:
+                    return new BusySpinWaitStrategy();
+                default:
+                    return new BlockingWaitStrategy();
+            }
+        }
+    }
+
+    /**
+     * 消费方式
+     */
+    public enum ConsumeMode
+    {
+        //多个消费者组成工作池，每个事件只被其中一个消费者处理
+        WORKER_POOL,
+        //单个消费者按提交顺序处理所有事件
+        ORDERED
+    }
+
+    //懒汉式单例：默认的调度器实例
+    private static class DefaultSchedulerLazyHolder
+    {
+        private static final DisruptorTaskScheduler INSTANCE = new DisruptorTaskScheduler(
+                Integer.getInteger(RING_SIZE, DEFAULT_RING_SIZE),
+                Integer.getInteger(CONSUMER_SIZE, DEFAULT_CONSUMER_SIZE),
+                WaitStrategyType.valueOf(System.getProperty(WAIT_STRATEGY,
+                        WaitStrategyType.BLOCKING.name()).toUpperCase()),
+                ConsumeMode.valueOf(System.getProperty(CONSUME_MODE,
+                        ConsumeMode.WORKER_POOL.name()).toUpperCase()));
+
+        static
+        {
+            //JVM关闭时的钩子函数
+            Runtime.getRuntime().addShutdownHook(
+                    new ShutdownHookThread("Disruptor任务调度器", new Callable<Void>()
+                    {
+                        @Override
+                        public Void call() throws Exception
+                        {
+                            INSTANCE.shutdown();
+                            return null;
+                        }
+                    }));
+        }
+    }
+
+    /**
+     * 添加任务到默认调度器
+     *
+     * @param executeTask
+     */
+    public static void add(Runnable executeTask)
+    {
+        DefaultSchedulerLazyHolder.INSTANCE.execute(executeTask);
+    }
+
+    /**
+     * 添加任务到默认调度器
+     * 与 add(Runnable) 的参数都是无参的函数式接口，同名时 lambda 会有二义性，所以单独命名
+     *
+     * @param executeTask
+     */
+    public static void addTask(ExecuteTask executeTask)
+    {
+        DefaultSchedulerLazyHolder.INSTANCE.executeTask(executeTask);
+    }
+
+
+    /**
+     * 事件槽，由 NotifyEventFactory 预先分配，循环复用
+     */
+    static class NotifyEvent
+    {
+        private Runnable target;
+        private ExecuteTask executeTask;
+
+        void run()
+        {
+            try
+            {
+                if (target != null)
+                {
+                    target.run();
+                } else if (executeTask != null)
+                {
+                    executeTask.execute();
+                }
+            } finally
+            {
+                //清空引用，避免已执行的任务被环形队列长期持有
+                target = null;
+                executeTask = null;
+            }
+        }
+    }
+
+    //消息工厂,用于预分配事件槽
+    static class NotifyEventFactory implements EventFactory<NotifyEvent>
+    {
+        @Override
+        public NotifyEvent newInstance()
+        {
+            return new NotifyEvent();
+        }
+    }
+
+    //无状态的事件转换器，作为静态常量复用，提交时不分配对象
+    private static final EventTranslatorOneArg<NotifyEvent, Runnable> RUNNABLE_TRANSLATOR =
+            (event, sequence, target) -> event.target = target;
+
+    private static final EventTranslatorOneArg<NotifyEvent, ExecuteTask> EXECUTE_TASK_TRANSLATOR =
+            (event, sequence, executeTask) -> event.executeTask = executeTask;
+
+    //创建消费者，此处用于处理业务逻辑
+    static class NotifyEventHandler implements EventHandler<NotifyEvent>, WorkHandler<NotifyEvent>
+    {
+        //顺序消费
+        @Override
+        public void onEvent(NotifyEvent notifyEvent, long sequence, boolean endOfBatch) throws Exception
+        {
+            notifyEvent.run();
+        }
+
+        //并发消费
+        @Override
+        public void onEvent(NotifyEvent notifyEvent) throws Exception
+        {
+            notifyEvent.run();
+        }
+    }
+
+    //自定义异常处理：记录后继续消费，不让一个任务的异常停掉消费者
+    static class NotifyEventHandlerException implements ExceptionHandler<NotifyEvent>
+    {
+        @Override
+        public void handleEventException(Throwable throwable, long sequence, NotifyEvent event)
+        {
+            log.error("process  error ==[{}] ", throwable.getMessage(), throwable);
+        }
+
+        @Override
+        public void handleOnStartException(Throwable throwable)
+        {
+            log.error("start disruptor error ==[{}]!", throwable.getMessage(), throwable);
+        }
+
+        @Override
+        public void handleOnShutdownException(Throwable throwable)
+        {
+            log.error("shutdown disruptor error ==[{}]!", throwable.getMessage(), throwable);
+        }
+    }
+
+    private final Disruptor<NotifyEvent> disruptor;
+    private final RingBuffer<NotifyEvent> ringBuffer;
+
+    /**
+     * @param ringSize     环形队列长度，必须是2的幂
+     * @param consumerSize 消费者数量，ORDERED 模式下忽略
+     * @param waitStrategy 消费者的等待策略
+     * @param consumeMode  消费方式
+     */
+    public DisruptorTaskScheduler(int ringSize, int consumerSize,
+                                  WaitStrategyType waitStrategy, ConsumeMode consumeMode)
+    {
+        if (Integer.bitCount(ringSize) != 1)
+        {
+            throw new IllegalArgumentException("ringSize 必须是2的幂: " + ringSize);
+        }
+        disruptor = new Disruptor<>(
+                new NotifyEventFactory(),
+                ringSize,
+                new ThreadUtil.CustomThreadFactory("disruptor"),
+                ProducerType.MULTI,
+                waitStrategy.create());
+        disruptor.setDefaultExceptionHandler(new NotifyEventHandlerException());
+
+        if (consumeMode == ConsumeMode.ORDERED)
+        {
+            //顺序消息
+            disruptor.handleEventsWith(new NotifyEventHandler());
+        } else
+        {
+            // 创建多个消费者来处理同一个生产者发的消息(这些消费者不重复消费消息)
+            NotifyEventHandler[] consumers = new NotifyEventHandler[consumerSize];
+            for (int i = 0; i < consumers.length; i++)
+            {
+                consumers[i] = new NotifyEventHandler();
+            }
+            //并发消费
+            disruptor.handleEventsWithWorkerPool(consumers);
+        }
+        ringBuffer = disruptor.start();
+    }
+
+    /**
+     * 提交任务，环形队列满时提交线程自旋等待空位
+     */
+    public void execute(Runnable target)
+    {
+        ringBuffer.publishEvent(RUNNABLE_TRANSLATOR, target);
+    }
+
+    /**
+     * 提交任务，环形队列满时提交线程自旋等待空位
+     */
+    public void executeTask(ExecuteTask executeTask)
+    {
+        ringBuffer.publishEvent(EXECUTE_TASK_TRANSLATOR, executeTask);
+    }
+
+    /**
+     * 尝试提交任务，环形队列满时立即返回 false
+     */
+    public boolean tryExecute(Runnable target)
+    {
+        return ringBuffer.tryPublishEvent(RUNNABLE_TRANSLATOR, target);
+    }
+
+    /**
+     * 等待已提交的任务全部处理完成后停止消费者
+     */
+    public void shutdown()
+    {
+        disruptor.shutdown();
+    }
+
+}
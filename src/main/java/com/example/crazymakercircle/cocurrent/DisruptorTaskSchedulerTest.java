@@ -0,0 +1,113 @@
+package com.example.crazymakercircle.cocurrent;
+
+import com.example.crazymakercircle.util.Print;
+import org.junit.Assert;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 吞吐量对比：DisruptorTaskScheduler vs FutureTaskScheduler vs CallbackTaskScheduler
+ */
+public class DisruptorTaskSchedulerTest
+{
+    // 提交的任务数
+    final int TASK_AMOUNT = 1000000;
+    // 环形队列长度
+    final int RING_SIZE = 64 * 1024;
+    // 消费者数量
+    final int CONSUMER_SIZE = 4;
+
+    @org.junit.Test
+    public void testDisruptorWaitStrategies() throws InterruptedException
+    {
+        for (DisruptorTaskScheduler.WaitStrategyType type : DisruptorTaskScheduler.WaitStrategyType.values())
+        {
+            DisruptorTaskScheduler scheduler = new DisruptorTaskScheduler(RING_SIZE, CONSUMER_SIZE,
+                    type, DisruptorTaskScheduler.ConsumeMode.WORKER_POOL);
+            runDisruptor("disruptor-worker-" + type, scheduler);
+            scheduler.shutdown();
+        }
+
+        DisruptorTaskScheduler ordered = new DisruptorTaskScheduler(RING_SIZE, 1,
+                DisruptorTaskScheduler.WaitStrategyType.YIELDING, DisruptorTaskScheduler.ConsumeMode.ORDERED);
+        runDisruptor("disruptor-ordered-YIELDING", ordered);
+        ordered.shutdown();
+    }
+
+    @org.junit.Test
+    public void testDefaultScheduler() throws InterruptedException
+    {
+        //lambda 与方法引用可以直接提交给默认调度器
+        CountDownLatch latch = new CountDownLatch(2);
+        DisruptorTaskScheduler.add(latch::countDown);
+        DisruptorTaskScheduler.addTask(() -> latch.countDown());
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @org.junit.Test
+    public void testFutureTaskScheduler() throws InterruptedException
+    {
+        CountDownLatch latch = new CountDownLatch(TASK_AMOUNT);
+        long start = System.nanoTime();
+        for (int i = 0; i < TASK_AMOUNT; i++)
+        {
+            FutureTaskScheduler.add(latch::countDown);
+        }
+        latch.await();
+        printThroughput("future", start);
+    }
+
+    @org.junit.Test
+    public void testCallbackTaskScheduler() throws InterruptedException
+    {
+        CountDownLatch latch = new CountDownLatch(TASK_AMOUNT);
+        CallbackTask<Void> task = new CallbackTask<Void>()
+        {
+            @Override
+            public Void execute()
+            {
+                return null;
+            }
+
+            @Override
+            public void onSuccess(Void unused)
+            {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t)
+            {
+                latch.countDown();
+            }
+        };
+        long start = System.nanoTime();
+        for (int i = 0; i < TASK_AMOUNT; i++)
+        {
+            CallbackTaskScheduler.add(task);
+        }
+        latch.await();
+        printThroughput("callback", start);
+    }
+
+    private void runDisruptor(String name, DisruptorTaskScheduler scheduler) throws InterruptedException
+    {
+        CountDownLatch latch = new CountDownLatch(TASK_AMOUNT);
+        //任务对象复用，只测量调度本身的开销
+        Runnable task = latch::countDown;
+        long start = System.nanoTime();
+        for (int i = 0; i < TASK_AMOUNT; i++)
+        {
+            scheduler.execute(task);
+        }
+        latch.await();
+        printThroughput(name, start);
+    }
+
+    private void printThroughput(String name, long start)
+    {
+        long cost = System.nanoTime() - start;
+        Print.tcfo(name + " 耗时(ms)：" + cost / 1000000 + "，吞吐量(ops/s)：" + TASK_AMOUNT * 1000000000L / cost);
+    }
+}
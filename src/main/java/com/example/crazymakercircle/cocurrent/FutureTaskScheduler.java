@@ -5,26 +5,87 @@
 package com.example.crazymakercircle.cocurrent;
 
 
-import org.apache.log4j.Logger;
+import com.example.crazymakercircle.threadpool.InstrumentedThreadPoolExecutor;
+import com.example.crazymakercircle.threadpool.OverloadPolicy;
+import com.example.crazymakercircle.util.ShutdownHookThread;
+import com.example.crazymakercircle.util.ThreadUtil;
+import lombok.extern.slf4j.Slf4j;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-
-public class FutureTaskScheduler extends Thread
+/**
+ * 异步任务调度器
+ * <p>
+ * 早期版本由一条调度线程轮询 ConcurrentLinkedQueue，每轮之后 sleep(200)，
+ * 任务从 add() 到真正被线程池执行最多要多等 200ms。
+ * 现在 add() 直接把任务交给线程池（direct hand-off），
+ * 线程池内部的有界阻塞队列本身就是"信号驱动"的：有任务入队立即唤醒空闲的工作线程。
+ * <p>
+ * 通过系统属性配置（与 ThreadUtil 中的 mixed.thread.amount 相同的方式）：
+ * future.scheduler.pool.size    线程数，默认 20
+ * future.scheduler.queue.size   有界队列长度，默认 10000
+ * future.scheduler.backpressure 队列满时的背压策略，取值见 OverloadPolicy，默认 block（一直等待）
+ * future.scheduler.virtual      为 true 且 JDK 21+ 时，每个任务一个虚拟线程，
+ *                               此时不再有线程数与队列的上限，以上三项配置不生效
+ */
+@Slf4j
+public class FutureTaskScheduler
 {
-    private final Logger logger = Logger.getLogger(this.getClass());
-    private ConcurrentLinkedQueue<ExecuteTask> executeTaskQueue =
-            new ConcurrentLinkedQueue<ExecuteTask>();// 任务队列
-    private long sleepTime = 200;// 线程休眠时间
-    private ExecutorService pool = Executors.newFixedThreadPool(20);
+    public static final String POOL_SIZE = "future.scheduler.pool.size";
+    public static final String QUEUE_SIZE = "future.scheduler.queue.size";
+    public static final String BACK_PRESSURE = "future.scheduler.backpressure";
+    public static final String VIRTUAL = "future.scheduler.virtual";
+
+    private static final int DEFAULT_POOL_SIZE = 20;
+    private static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    private final ExecutorService pool;
 
     private static FutureTaskScheduler inst = new FutureTaskScheduler();
 
     private FutureTaskScheduler()
     {
-        this.start();
+        pool = Boolean.getBoolean(VIRTUAL) && ThreadUtil.isVirtualThreadSupported()
+                ? ThreadUtil.newVirtualThreadPerTaskExecutor("future")
+                : newPlatformPool();
+
+        //JVM关闭时的钩子函数
+        Runtime.getRuntime().addShutdownHook(
+                new ShutdownHookThread("异步任务调度器", new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        //优雅关闭线程池
+                        ThreadUtil.shutdownThreadPoolGracefully(pool);
+                        return null;
+                    }
+                }));
+    }
+
+    private static ThreadPoolExecutor newPlatformPool()
+    {
+        int poolSize = Integer.getInteger(POOL_SIZE, DEFAULT_POOL_SIZE);
+        int queueSize = Integer.getInteger(QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+        OverloadPolicy backPressure = OverloadPolicy.fromProperty(BACK_PRESSURE, OverloadPolicy.BLOCK);
+
+        InstrumentedThreadPoolExecutor executor = new InstrumentedThreadPoolExecutor(
+                "future",
+                poolSize,
+                poolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                backPressure.newQueue(queueSize),
+                new ThreadUtil.CustomThreadFactory("future"),
+                //block 策略一直等待，与之前的行为一致
+                backPressure.newHandler(0));
+        //预先启动核心线程，第一个任务不用再等线程创建
+        executor.prestartAllCoreThreads();
+        executor.getMetrics().register();
+        return executor;
     }
 
     /**
@@ -32,64 +93,24 @@ public class FutureTaskScheduler extends Thread
      *
      * @param executeTask
      */
-
-
     public static void add(ExecuteTask executeTask)
     {
-        inst.executeTaskQueue.add(executeTask);
-    }
-
-    @Override
-    public void run()
-    {
-        while (true)
-        {
-            handleTask();// 处理任务
-            threadSleep(sleepTime);
-        }
-    }
-
-    private void threadSleep(long time)
-    {
-        try
-        {
-            sleep(time);
-        } catch (InterruptedException e)
-        {
-            logger.error(e);
-        }
+        inst.pool.execute(new ExecuteRunnable(executeTask));
     }
 
     /**
-     * 处理任务队列，检查其中是否有任务
+     * 当前排队中的任务数，虚拟线程模式下没有排队，始终为 0
      */
-    private void handleTask()
+    public static int getQueueSize()
     {
-        try
+        if (inst.pool instanceof ThreadPoolExecutor)
         {
-            ExecuteTask executeTask;
-            while (executeTaskQueue.peek() != null)
-            {
-                executeTask = executeTaskQueue.poll();
-                handleTask(executeTask);
-            }
-        } catch (Exception e)
-        {
-            logger.error(e);
+            return ((ThreadPoolExecutor) inst.pool).getQueue().size();
         }
+        return 0;
     }
 
-    /**
-     * 执行任务操作
-     *
-     * @param executeTask
-     */
-    private void handleTask(ExecuteTask executeTask)
-    {
-        pool.execute(new ExecuteRunnable(executeTask));
-    }
-
-    class ExecuteRunnable implements Runnable
+    static class ExecuteRunnable implements Runnable
     {
         ExecuteTask executeTask;
 
@@ -100,7 +121,14 @@ public class FutureTaskScheduler extends Thread
 
         public void run()
         {
-            executeTask.execute();
+            try
+            {
+                executeTask.execute();
+            } catch (Throwable t)
+            {
+                //不让异常杀死工作线程
+                log.error("execute task error ==[{}]", t.getMessage(), t);
+            }
         }
     }
 }
@@ -0,0 +1,63 @@
+package com.example.crazymakercircle.cocurrent;
+
+import com.example.crazymakercircle.util.Print;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 测试 FutureTaskScheduler 从 add() 到任务开始执行的延迟
+ */
+public class FutureTaskSchedulerTest
+{
+    //预热轮数
+    final int WARM_UP = 10000;
+    //统计轮数
+    final int TURNS = 100000;
+
+    @org.junit.Test
+    public void testSubmitToStartLatency() throws InterruptedException
+    {
+        //预热
+        runTurns(WARM_UP);
+
+        long[] latency = runTurns(TURNS);
+        Arrays.sort(latency);
+        long total = 0;
+        for (long l : latency)
+        {
+            total += l;
+        }
+        //输出统计结果，单位微秒
+        Print.tcfo("任务数：" + TURNS);
+        Print.tcfo("平均延迟(us)：" + total / latency.length / 1000F);
+        Print.tcfo("p50 延迟(us)：" + latency[latency.length / 2] / 1000F);
+        Print.tcfo("p99 延迟(us)：" + latency[(int) (latency.length * 0.99)] / 1000F);
+        Print.tcfo("最大延迟(us)：" + latency[latency.length - 1] / 1000F);
+    }
+
+    private long[] runTurns(int turns) throws InterruptedException
+    {
+        long[] latency = new long[turns];
+        CountDownLatch latch = new CountDownLatch(turns);
+        for (int i = 0; i < turns; i++)
+        {
+            final int index = i;
+            final long submitTime = System.nanoTime();
+            FutureTaskScheduler.add(() ->
+            {
+                latency[index] = System.nanoTime() - submitTime;
+                latch.countDown();
+            });
+            //每提交 100 个任务稍作停顿，避免只测出排队时间
+            if (i % 100 == 0)
+            {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            }
+        }
+        latch.await();
+        return latency;
+    }
+}
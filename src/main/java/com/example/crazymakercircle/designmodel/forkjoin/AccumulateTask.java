@@ -1,9 +1,11 @@
 package com.example.crazymakercircle.designmodel.forkjoin;
 
-import com.example.crazymakercircle.util.Print;
-
 import java.util.concurrent.RecursiveTask;
 
+/**
+ * 演示用的累加任务，固定阈值切割
+ * 需要自适应切割、不装箱的并行归约，见 {@link ParallelReduce}
+ */
 public class AccumulateTask extends RecursiveTask<Integer>
 {
 
@@ -33,22 +35,18 @@ public class AccumulateTask extends RecursiveTask<Integer>
             {
                 sum += i;
             }
-            Print.tco("执行任务，计算" + start + "到" + end + "的和，结果是：" + sum);
-
         } else
         {
             //任务过大，需要切割,Recursive 递归计算
-            Print.tco("切割任务：将" + start + "到" + end + "的和一分为二");
             int middle = (start + end) / 2;
             //切割成两个子任务
             AccumulateTask lTask = new AccumulateTask(start, middle);
             AccumulateTask rTask = new AccumulateTask(middle + 1, end);
-            //依次调用每个子任务的fork方法执行子任务
+            //只 fork 左半部分，右半部分在当前线程中直接计算，少占用一个工作线程
             lTask.fork();
-            rTask.fork();
-            //等待子任务的完成，依次调用每个子任务的join方法合并执行结果
+            int rightResult = rTask.compute();
+            //等待左半部分完成，合并执行结果
             int leftResult = lTask.join();
-            int rightResult = rTask.join();
             //合并子任务执行结果
             sum = leftResult + rightResult;
         }
@@ -0,0 +1,97 @@
+package com.example.crazymakercircle.designmodel.forkjoin;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * long 类型的归约任务，结果放在 result 字段中，不装箱
+ * <p>
+ * 切割方式：只要区间还大于最小粒度，并且当前工作线程的队列里没有多余的任务
+ * （getSurplusQueuedTaskCount 不超过 SURPLUS_THRESHOLD），就把右半部分 fork 出去、
+ * 自己继续处理左半部分；其他线程都忙时不再切割，直接在本线程中计算。
+ * fork 出去的子任务串成链表，最后依次合并：还没被窃取的子任务直接在本线程中计算。
+ */
+class LongReduceTask extends RecursiveAction
+{
+    //区间小于该值时不再切割
+    static final int MIN_GRAIN = 1 << 10;
+    //工作线程队列中的剩余任务超过该值时，说明其他线程已经忙不过来，不再切割
+    static final int SURPLUS_THRESHOLD = 3;
+
+    //数组归约时的数组，区间归约时为 null
+    private final long[] array;
+    //区间归约时，把下标映射为参与归约的值
+    private final LongUnaryOperator mapper;
+    private final long identity;
+    private final LongBinaryOperator op;
+    //区间 [lo, hi)
+    private final long lo;
+    private long hi;
+
+    //归约的结果
+    long result;
+    //同一个父任务 fork 出去的前一个子任务，构成待合并的链表
+    private LongReduceTask next;
+
+    LongReduceTask(long[] array, LongUnaryOperator mapper, long identity,
+                   LongBinaryOperator op, long lo, long hi)
+    {
+        this.array = array;
+        this.mapper = mapper;
+        this.identity = identity;
+        this.op = op;
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    @Override
+    protected void compute()
+    {
+        LongReduceTask forked = null;
+        //一半 fork 出去，另一半留在本线程中继续切割
+        while (hi - lo > MIN_GRAIN && getSurplusQueuedTaskCount() <= SURPLUS_THRESHOLD)
+        {
+            long mid = lo + ((hi - lo) >>> 1);
+            LongReduceTask right = new LongReduceTask(array, mapper, identity, op, mid, hi);
+            right.next = forked;
+            forked = right;
+            hi = mid;
+            right.fork();
+        }
+        long r = array != null ? reduceArray() : reduceRange();
+        //按 fork 的逆序合并，最后 fork 的任务最可能还在本线程的队列里
+        for (LongReduceTask t = forked; t != null; t = t.next)
+        {
+            if (t.tryUnfork())
+            {
+                t.compute();
+            } else
+            {
+                t.join();
+            }
+            r = op.applyAsLong(r, t.result);
+        }
+        result = r;
+    }
+
+    private long reduceArray()
+    {
+        long r = identity;
+        for (int i = (int) lo, end = (int) hi; i < end; i++)
+        {
+            r = op.applyAsLong(r, array[i]);
+        }
+        return r;
+    }
+
+    private long reduceRange()
+    {
+        long r = identity;
+        for (long i = lo; i < hi; i++)
+        {
+            r = op.applyAsLong(r, mapper.applyAsLong(i));
+        }
+        return r;
+    }
+}
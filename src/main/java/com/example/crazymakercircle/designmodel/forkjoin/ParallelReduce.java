@@ -0,0 +1,113 @@
+package com.example.crazymakercircle.designmodel.forkjoin;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * 基于 ForkJoinPool 的并行归约，按 long / double 特化，结果不装箱
+ * <p>
+ * 与 AccumulateTask 固定的切割阈值不同，这里的任务只在其他工作线程有空闲时才继续切割
+ * （见 {@link LongReduceTask}），任务数随线程数与负载自适应。
+ * op 必须满足结合律，identity 必须是 op 的单位元，例如求和时为 0，求积时为 1。
+ */
+public final class ParallelReduce
+{
+    private ParallelReduce()
+    {
+    }
+
+    /**
+     * 对区间 [from, to) 中的每个下标 i，归约 mapper(i)
+     */
+    public static long reduce(long from, long to, LongUnaryOperator mapper,
+                              long identity, LongBinaryOperator op)
+    {
+        return reduce(ForkJoinPool.commonPool(), from, to, mapper, identity, op);
+    }
+
+    public static long reduce(ForkJoinPool pool, long from, long to, LongUnaryOperator mapper,
+                              long identity, LongBinaryOperator op)
+    {
+        checkRange(from, to);
+        LongReduceTask task = new LongReduceTask(null, mapper, identity, op, from, to);
+        pool.invoke(task);
+        return task.result;
+    }
+
+    /**
+     * 归约整个数组
+     */
+    public static long reduce(long[] array, long identity, LongBinaryOperator op)
+    {
+        return reduce(ForkJoinPool.commonPool(), array, identity, op);
+    }
+
+    public static long reduce(ForkJoinPool pool, long[] array, long identity, LongBinaryOperator op)
+    {
+        LongReduceTask task = new LongReduceTask(array, null, identity, op, 0, array.length);
+        pool.invoke(task);
+        return task.result;
+    }
+
+    /**
+     * 对区间 [from, to) 中的每个下标 i，归约 mapper(i)
+     */
+    public static double reduceDouble(long from, long to, LongToDoubleFunction mapper,
+                                      double identity, DoubleBinaryOperator op)
+    {
+        return reduceDouble(ForkJoinPool.commonPool(), from, to, mapper, identity, op);
+    }
+
+    public static double reduceDouble(ForkJoinPool pool, long from, long to, LongToDoubleFunction mapper,
+                                      double identity, DoubleBinaryOperator op)
+    {
+        checkRange(from, to);
+        DoubleReduceTask task = new DoubleReduceTask(null, mapper, identity, op, from, to);
+        pool.invoke(task);
+        return task.result;
+    }
+
+    /**
+     * 归约整个数组
+     */
+    public static double reduce(double[] array, double identity, DoubleBinaryOperator op)
+    {
+        return reduce(ForkJoinPool.commonPool(), array, identity, op);
+    }
+
+    public static double reduce(ForkJoinPool pool, double[] array, double identity, DoubleBinaryOperator op)
+    {
+        DoubleReduceTask task = new DoubleReduceTask(array, null, identity, op, 0, array.length);
+        pool.invoke(task);
+        return task.result;
+    }
+
+    /**
+     * 区间 [from, to] 的和，两端都包含，与 AccumulateTask 的语义一致
+     */
+    public static long sum(long from, long to)
+    {
+        return reduce(from, to + 1, i -> i, 0L, Long::sum);
+    }
+
+    public static long sum(long[] array)
+    {
+        return reduce(array, 0L, Long::sum);
+    }
+
+    public static double sum(double[] array)
+    {
+        return reduce(array, 0D, Double::sum);
+    }
+
+    private static void checkRange(long from, long to)
+    {
+        if (from > to)
+        {
+            throw new IllegalArgumentException("from=" + from + " > to=" + to);
+        }
+    }
+}
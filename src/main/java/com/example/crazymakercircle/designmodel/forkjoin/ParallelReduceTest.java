@@ -0,0 +1,96 @@
+package com.example.crazymakercircle.designmodel.forkjoin;
+
+import com.example.crazymakercircle.util.Print;
+import org.junit.Assert;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * 并行归约与顺序循环、并行流的对比
+ */
+public class ParallelReduceTest
+{
+    // 区间长度
+    final long RANGE = 200_000_000L;
+    // 数组长度
+    final int ARRAY_SIZE = 20_000_000;
+    // 每种方式预热与计时的轮数
+    final int WARMUP_ROUNDS = 5;
+    final int ROUNDS = 10;
+
+    @org.junit.Test
+    public void testCorrectness()
+    {
+        Assert.assertEquals(5050L, ParallelReduce.sum(1, 100));
+        Assert.assertEquals(0L, ParallelReduce.sum(5, 4));
+        Assert.assertEquals(LongStream.rangeClosed(-1000, 1_000_000).sum(), ParallelReduce.sum(-1000, 1_000_000));
+
+        long[] longs = ThreadLocalRandom.current().longs(100_003, 0, 1000).toArray();
+        Assert.assertEquals(LongStream.of(longs).sum(), ParallelReduce.sum(longs));
+        Assert.assertEquals(LongStream.of(longs).max().getAsLong(), ParallelReduce.reduce(longs, Long.MIN_VALUE, Math::max));
+
+        //只满足结合律、不满足交换律的归约（取第一个 / 最后一个非负值），检查合并的顺序
+        Assert.assertEquals(0L, ParallelReduce.reduce(0, 1_000_000, i -> i, -1L, (x, y) -> x >= 0 ? x : y));
+        Assert.assertEquals(999_999L, ParallelReduce.reduce(0, 1_000_000, i -> i, -1L, (x, y) -> y >= 0 ? y : x));
+
+        double[] doubles = IntStream.range(0, 100_003).mapToDouble(i -> 0.5).toArray();
+        Assert.assertEquals(100_003 * 0.5, ParallelReduce.sum(doubles), 1e-6);
+        Assert.assertEquals(RANGE / 2D, ParallelReduce.reduceDouble(0, RANGE, i -> 0.5, 0D, Double::sum), 1e-6);
+    }
+
+    @org.junit.Test
+    public void testRangeSum()
+    {
+        Print.tcfo("区间求和，长度：" + RANGE + "，并行度：" + Runtime.getRuntime().availableProcessors());
+        bench("顺序循环", () ->
+        {
+            long sum = 0;
+            for (long i = 0; i < RANGE; i++)
+            {
+                sum += i * i;
+            }
+            return sum;
+        });
+        bench("并行流", () -> LongStream.range(0, RANGE).parallel().map(i -> i * i).sum());
+        bench("ParallelReduce", () -> ParallelReduce.reduce(0, RANGE, i -> i * i, 0L, Long::sum));
+    }
+
+    @org.junit.Test
+    public void testArraySum()
+    {
+        double[] array = ThreadLocalRandom.current().doubles(ARRAY_SIZE).toArray();
+        Print.tcfo("数组求和，长度：" + ARRAY_SIZE + "，并行度：" + Runtime.getRuntime().availableProcessors());
+        bench("顺序循环", () ->
+        {
+            double sum = 0;
+            for (double d : array)
+            {
+                sum += d;
+            }
+            return (long) sum;
+        });
+        bench("并行流", () -> (long) Arrays.stream(array).parallel().sum());
+        bench("ParallelReduce", () -> (long) ParallelReduce.sum(array));
+    }
+
+    private void bench(String name, LongSupplier action)
+    {
+        long result = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+        {
+            result += action.getAsLong();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++)
+        {
+            result += action.getAsLong();
+        }
+        long avg = (System.nanoTime() - start) / ROUNDS;
+        //输出 result，避免计算被 JIT 消除
+        Print.tcfo(name + " 平均耗时(ms)：" + avg / 1000000F + "，校验值：" + result);
+    }
+}
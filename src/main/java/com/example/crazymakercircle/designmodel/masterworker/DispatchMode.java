@@ -0,0 +1,14 @@
+package com.example.crazymakercircle.designmodel.masterworker;
+
+/**
+ * Master 向 Worker 分配任务的方式
+ */
+public enum DispatchMode
+{
+    //轮询：依次分配给每一个 Worker
+    ROUND_ROBIN,
+    //最少负载：分配给当前积压任务最少的 Worker
+    LEAST_LOADED,
+    //工作窃取：轮询分配，空闲的 Worker 从积压最多的 Worker 的队尾窃取任务
+    WORK_STEALING
+}
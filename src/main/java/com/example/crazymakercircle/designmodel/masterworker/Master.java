@@ -2,77 +2,212 @@ package com.example.crazymakercircle.designmodel.masterworker;
 
 import com.example.crazymakercircle.util.Print;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
 
 public class Master<T extends Task, R>
 {
-    // 所有worker的集合
-    private HashMap<String, Worker<T, R>> workers = new HashMap<>();
+    // 所有在职worker的集合，只由调度线程修改
+    private final List<Worker<T, R>> workers = new CopyOnWriteArrayList<>();
 
+    // 所有创建过的结果接收器；worker 退役后接收器回收到 freeSinks，由新的 worker 复用
+    private final List<WorkerSink> sinks = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<WorkerSink> freeSinks = new ConcurrentLinkedQueue<>();
+
+    // worker 的伸缩策略
+    private final ScalingPolicy scalingPolicy;
+
+    // 任务的分配方式
+    private final DispatchMode dispatchMode;
+
+    // 每个worker保留最近多少个任务的结果，0 表示不保留
+    private final int retainPerWorker;
 
     // 任务的集合
     private LinkedBlockingQueue<T> taskQueue = new LinkedBlockingQueue<>();
 
-    //任务处理结果集
-    protected Map<String, R> resultMap = new ConcurrentHashMap<>();
+    // 注册的结果聚合，写时复制
+    private volatile Reduction[] reductions = new Reduction[0];
 
     //Master的任务调度线程
     private Thread thread = null;
+    private volatile boolean running = true;
 
-    //保持最终的和
-    private AtomicLong sum = new AtomicLong(0);
+    //轮询分配时的下一个 worker 下标
+    private int next = 0;
 
     public Master(int workerCount)
     {
-        // 每个worker对象都需要持有queue的引用, 用于领任务与提交结果
-        for (int i = 0; i < workerCount; i++)
+        this(workerCount, DispatchMode.ROUND_ROBIN);
+    }
+
+    public Master(int workerCount, DispatchMode dispatchMode)
+    {
+        this(workerCount, dispatchMode, 0);
+    }
+
+    /**
+     * @param workerCount     worker 数量
+     * @param dispatchMode    任务的分配方式
+     * @param retainPerWorker 每个 worker 保留最近多少个任务的结果，供 printResult 输出，0 表示不保留
+     */
+    public Master(int workerCount, DispatchMode dispatchMode, int retainPerWorker)
+    {
+        this(ScalingPolicy.fixed(workerCount), dispatchMode, retainPerWorker);
+    }
+
+    /**
+     * @param scalingPolicy   worker 的伸缩策略，初始创建 minWorkers 个 worker
+     * @param dispatchMode    任务的分配方式
+     * @param retainPerWorker 每个 worker 保留最近多少个任务的结果，供 printResult 输出，0 表示不保留
+     */
+    public Master(ScalingPolicy scalingPolicy, DispatchMode dispatchMode, int retainPerWorker)
+    {
+        this.scalingPolicy = scalingPolicy;
+        this.dispatchMode = dispatchMode;
+        this.retainPerWorker = retainPerWorker;
+        for (int i = 0; i < scalingPolicy.getMinWorkers(); i++)
         {
-            Worker<T, R> worker = new Worker<>();
-            workers.put("子节点: " + i, worker);
+            addWorker();
         }
         thread = new Thread(() -> this.execute());
         thread.start();
     }
 
+    /**
+     * 增加一个 worker，只在构造函数与调度线程中调用
+     */
+    private void addWorker()
+    {
+        // 每个worker持有自己的结果接收器，结果回调时不再经过 Master 的共享数据结构
+        WorkerSink sink = freeSinks.poll();
+        if (sink == null)
+        {
+            sink = newSink();
+        }
+        Worker<T, R> worker = new Worker<>(sink);
+        if (dispatchMode == DispatchMode.WORK_STEALING)
+        {
+            worker.enableStealing(workers);
+        }
+        workers.add(worker);
+    }
+
+    /**
+     * 让一个 worker 退役，只在调度线程中调用
+     * worker 从分配列表中移除后不会再收到新任务，排空自己的队列后退出，并归还结果接收器
+     */
+    private void retireWorker(Worker<T, R> worker, WorkerSink sink)
+    {
+        workers.remove(worker);
+        worker.retire(() -> freeSinks.add(sink));
+    }
+
+    private synchronized WorkerSink newSink()
+    {
+        WorkerSink sink = new WorkerSink();
+        Object[] slots = new Object[reductions.length];
+        for (int i = 0; i < slots.length; i++)
+        {
+            slots[i] = reductions[i].newSlot();
+        }
+        sink.slots = slots;
+        sinks.add(sink);
+        return sink;
+    }
+
     // 提交任务
     public void submit(T task)
     {
         taskQueue.add(task);
     }
 
+    /**
+     * 注册一个结果聚合，之后完成的任务结果都会累加进去
+     *
+     * @param reducer 聚合器，见 {@link Reducers}
+     * @return 聚合的句柄，通过 get() 读取当前的聚合值
+     */
+    public synchronized <S, V> Reduction<R, S, V> addReducer(ResultReducer<R, S, V> reducer)
+    {
+        Reduction<R, S, V> reduction = new Reduction<>(reducer);
+        //先给每个 worker 分配累加槽，再发布聚合，worker 看到聚合时一定已经有对应的槽
+        for (WorkerSink sink : sinks)
+        {
+            Object[] slots = Arrays.copyOf(sink.slots, sink.slots.length + 1);
+            slots[slots.length - 1] = reduction.newSlot();
+            sink.slots = slots;
+        }
+        Reduction[] updated = Arrays.copyOf(reductions, reductions.length + 1);
+        updated[updated.length - 1] = reduction;
+        reductions = updated;
+        return reduction;
+    }
 
-    //结果处理的回调函数
-    private void resultCallBack(Object o)
+    /**
+     * 单个 worker 的结果接收器，只在该 worker 的线程中被回调
+     */
+    class WorkerSink implements Consumer<Task<R>>
     {
-        Task<R> task = (Task<R>) o;
-        String taskName = "Worker:" + task.getWorkerId() + "-" + "Task:" + task.getId();
-//        Print.tco(taskName + ":" + task.getResult());
-        R result = task.getResult();
-        resultMap.put(taskName, result);
+        // 与 reductions 一一对应的累加槽
+        volatile Object[] slots = new Object[0];
 
-        sum.getAndAdd((Integer) result);
+        // 最近完成的任务，环形覆盖
+        final AtomicReferenceArray<Task<R>> recent =
+                retainPerWorker > 0 ? new AtomicReferenceArray<>(retainPerWorker) : null;
+        int cursor = 0;
+
+        //结果处理的回调函数
+        @Override
+        public void accept(Task<R> task)
+        {
+            R result = task.getResult();
+            Reduction[] rs = reductions;
+            Object[] ss = slots;
+            int n = Math.min(rs.length, ss.length);
+            for (int i = 0; i < n; i++)
+            {
+                rs[i].accumulate(ss[i], result);
+            }
+            if (recent != null)
+            {
+                recent.lazySet(cursor, task);
+                cursor = (cursor + 1) % retainPerWorker;
+            }
+        }
     }
 
     // 启动所有的子任务
     public void execute()
     {
-
-        for (; ; )
+        long checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(scalingPolicy.getCheckIntervalMillis());
+        long nextCheck = System.nanoTime() + checkIntervalNanos;
+        while (running)
         {
-            // 从任务队列中获取任务，然后Worker节点轮询,  轮流分配任务
-            for (Map.Entry<String, Worker<T, R>> entry : workers.entrySet())
+            // 从任务队列中获取任务，然后按分配方式交给 Worker 节点
+            try
             {
-                T task = null;
-                try
+                T task = this.taskQueue.poll(scalingPolicy.getCheckIntervalMillis(), TimeUnit.MILLISECONDS);
+                if (task != null)
                 {
-                    task = this.taskQueue.take();
-                    Worker worker = entry.getValue();
-                    worker.submit(task, this::resultCallBack);
-                } catch (InterruptedException e)
+                    Worker<T, R> worker = selectWorker();
+                    worker.submit(task);
+                }
+                //伸缩与分配都在调度线程中进行，不会把任务分给已经退役的 worker
+                if (scalingPolicy.isElastic() && System.nanoTime() - nextCheck >= 0)
+                {
+                    rescale();
+                    nextCheck = System.nanoTime() + checkIntervalNanos;
+                }
+            } catch (InterruptedException e)
+            {
+                if (running)
                 {
                     e.printStackTrace();
                 }
@@ -81,17 +216,134 @@ public class Master<T extends Task, R>
 
     }
 
+    /**
+     * 根据积压任务数与任务耗时评估是否需要伸缩，每次最多增减一个 worker
+     */
+    private void rescale()
+    {
+        int count = workers.size();
+        long backlog = taskQueue.size();
+        long totalAvgNanos = 0;
+        for (Worker<T, R> worker : workers)
+        {
+            backlog += worker.getLoad();
+            totalAvgNanos += worker.getAvgTaskNanos();
+        }
+        long avgTaskNanos = totalAvgNanos / count;
+        //新任务的预计等待时间；还没有耗时数据时，积压超过 worker 数即视为超时
+        boolean overloaded = avgTaskNanos > 0
+                ? backlog * avgTaskNanos / count > TimeUnit.MILLISECONDS.toNanos(scalingPolicy.getTargetLatencyMillis())
+                : backlog > count;
+        if (overloaded)
+        {
+            if (count < scalingPolicy.getMaxWorkers())
+            {
+                addWorker();
+            }
+            return;
+        }
+        if (count <= scalingPolicy.getMinWorkers())
+        {
+            return;
+        }
+        //退役空闲最久的 worker
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(scalingPolicy.getIdleTimeoutMillis());
+        Worker<T, R> idlest = null;
+        long maxIdle = idleTimeoutNanos;
+        for (Worker<T, R> worker : workers)
+        {
+            long idle = worker.getIdleNanos();
+            if (idle >= maxIdle)
+            {
+                maxIdle = idle;
+                idlest = worker;
+            }
+        }
+        if (idlest != null)
+        {
+            retireWorker(idlest, sinkOf(idlest));
+        }
+    }
+
+    private WorkerSink sinkOf(Worker<T, R> worker)
+    {
+        return (WorkerSink) worker.getResultAction();
+    }
+
+    /**
+     * 当前在职的 worker 数量
+     */
+    public int getWorkerCount()
+    {
+        return workers.size();
+    }
+
+    /**
+     * 按分配方式选出接收任务的 Worker
+     */
+    private Worker<T, R> selectWorker()
+    {
+        if (dispatchMode == DispatchMode.LEAST_LOADED)
+        {
+            Worker<T, R> selected = workers.get(0);
+            int minLoad = selected.getLoad();
+            for (int i = 1; i < workers.size() && minLoad > 0; i++)
+            {
+                Worker<T, R> worker = workers.get(i);
+                int load = worker.getLoad();
+                if (load < minLoad)
+                {
+                    minLoad = load;
+                    selected = worker;
+                }
+            }
+            return selected;
+        }
+        //轮询，工作窃取模式下也按轮询放入，由空闲的 Worker 自行平衡
+        next = (next + 1) % workers.size();
+        return workers.get(next);
+    }
+
 
     // 获取最终的结果
     public void printResult()
     {
-        Print.tco("----------sum is :" + sum.get());
-        for (Map.Entry<String, R> entry : resultMap.entrySet())
+        for (Reduction reduction : reductions)
+        {
+            Object value = reduction.get();
+            String text = value instanceof long[] ? Arrays.toString((long[]) value) : String.valueOf(value);
+            Print.tco("----------" + reduction.getName() + " is :" + text);
+        }
+        if (retainPerWorker <= 0)
         {
-            String taskName = entry.getKey();
-            Print.fo(taskName + ":" + entry.getValue());
+            return;
+        }
+        //任务名只在输出时拼接，结果回调的热路径上不再构造字符串
+        for (WorkerSink sink : sinks)
+        {
+            for (int i = 0; i < retainPerWorker; i++)
+            {
+                Task<R> task = sink.recent.get(i);
+                if (task != null)
+                {
+                    Print.fo("Worker:" + task.getWorkerId() + "-" + "Task:" + task.getId() + ":" + task.getResult());
+                }
+            }
         }
 
     }
 
+    /**
+     * 停止调度线程与所有的 Worker
+     */
+    public void shutdown()
+    {
+        running = false;
+        thread.interrupt();
+        for (Worker<T, R> worker : workers)
+        {
+            worker.shutdown();
+        }
+    }
+
 }
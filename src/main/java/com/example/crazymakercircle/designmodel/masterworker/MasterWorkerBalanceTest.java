@@ -0,0 +1,133 @@
+package com.example.crazymakercircle.designmodel.masterworker;
+
+import com.example.crazymakercircle.util.Print;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.example.crazymakercircle.util.ThreadUtil.sleepMilliSeconds;
+
+/**
+ * 任务耗时倾斜的负载下，对比三种分配方式的任务延迟（从提交到完成）
+ */
+public class MasterWorkerBalanceTest
+{
+    // worker 数量
+    final int WORKER_COUNT = 8;
+    // 任务总数
+    final int TASK_AMOUNT = 2000;
+    // 每 SLOW_EVERY 个任务中有一个慢任务
+    final int SLOW_EVERY = 20;
+    // 慢任务与普通任务的耗时（毫秒）
+    final int SLOW_MILLIS = 50;
+    final int FAST_MILLIS = 1;
+    // 提交间隔（微秒）
+    final int SUBMIT_GAP_MICROS = 600;
+
+    //耗时倾斜的任务，完成时记录从提交到完成的延迟
+    static class SkewedTask extends Task<Integer>
+    {
+        final long submitNanos = System.nanoTime();
+        final int cost;
+        final long[] latency;
+        final AtomicInteger done;
+        final CountDownLatch latch;
+
+        SkewedTask(int cost, long[] latency, AtomicInteger done, CountDownLatch latch)
+        {
+            this.cost = cost;
+            this.latency = latency;
+            this.done = done;
+            this.latch = latch;
+        }
+
+        @Override
+        protected Integer doExecute()
+        {
+            sleepMilliSeconds(cost);
+            latency[done.getAndIncrement()] = System.nanoTime() - submitNanos;
+            latch.countDown();
+            return 1;
+        }
+    }
+
+    @org.junit.Test
+    public void testSkewedWorkload() throws InterruptedException
+    {
+        for (DispatchMode mode : DispatchMode.values())
+        {
+            runSkewed(mode);
+        }
+    }
+
+    private void runSkewed(DispatchMode mode) throws InterruptedException
+    {
+        Master<SkewedTask, Integer> master = new Master<>(WORKER_COUNT, mode);
+        long[] latency = new long[TASK_AMOUNT];
+        AtomicInteger done = new AtomicInteger(0);
+        CountDownLatch latch = new CountDownLatch(TASK_AMOUNT);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < TASK_AMOUNT; i++)
+        {
+            int cost = (i % SLOW_EVERY == 0) ? SLOW_MILLIS : FAST_MILLIS;
+            master.submit(new SkewedTask(cost, latency, done, latch));
+            LockSupport.parkNanos(SUBMIT_GAP_MICROS * 1000L);
+        }
+        latch.await();
+        long time = System.currentTimeMillis() - start;
+        master.shutdown();
+        printLatency(mode.toString(), time, latency);
+    }
+
+    /**
+     * 突发负载下，固定 2 个 worker 与 2~16 个弹性伸缩的 worker 的对比
+     */
+    @org.junit.Test
+    public void testElasticScaling() throws InterruptedException
+    {
+        runBurst("固定 2 个 worker", ScalingPolicy.fixed(2));
+        runBurst("弹性 2~16 个 worker", ScalingPolicy.elastic(2, 16)
+                .targetLatencyMillis(20)
+                .idleTimeoutMillis(500)
+                .checkIntervalMillis(10));
+    }
+
+    private void runBurst(String name, ScalingPolicy policy) throws InterruptedException
+    {
+        Master<SkewedTask, Integer> master = new Master<>(policy, DispatchMode.LEAST_LOADED, 0);
+        long[] latency = new long[TASK_AMOUNT];
+        AtomicInteger done = new AtomicInteger(0);
+        CountDownLatch latch = new CountDownLatch(TASK_AMOUNT);
+        long start = System.currentTimeMillis();
+        int peak = 0;
+        //前一半任务一次性突发提交，后一半按固定间隔提交
+        for (int i = 0; i < TASK_AMOUNT; i++)
+        {
+            master.submit(new SkewedTask(FAST_MILLIS, latency, done, latch));
+            if (i >= TASK_AMOUNT / 2)
+            {
+                LockSupport.parkNanos(SUBMIT_GAP_MICROS * 1000L);
+            }
+            peak = Math.max(peak, master.getWorkerCount());
+        }
+        latch.await();
+        long time = System.currentTimeMillis() - start;
+        int busyCount = master.getWorkerCount();
+        //空闲超时后回落到最少 worker 数
+        sleepMilliSeconds(2000);
+        Print.tcfo(name + " 峰值 worker 数：" + peak + "，完成时：" + busyCount + "，空闲 2 秒后：" + master.getWorkerCount());
+        master.shutdown();
+        printLatency(name, time, latency);
+    }
+
+    private void printLatency(String name, long time, long[] latency)
+    {
+        Arrays.sort(latency);
+        Print.tcfo(name + " 总耗时(ms)：" + time
+                + "，p50(ms)：" + latency[TASK_AMOUNT / 2] / 1000000F
+                + "，p99(ms)：" + latency[(int) (TASK_AMOUNT * 0.99)] / 1000000F
+                + "，max(ms)：" + latency[TASK_AMOUNT - 1] / 1000000F);
+    }
+}
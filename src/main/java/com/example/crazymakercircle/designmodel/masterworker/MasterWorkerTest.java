@@ -20,8 +20,13 @@ public class MasterWorkerTest
 
     public static void main(String[] args)
     {
-        //创建Master ，包含四个worker，并启动master的执行线程
-        Master<SimpleTask, Integer> master = new Master<>(4);
+        //创建Master ，包含四个worker，每个worker保留最近16个结果，并启动master的执行线程
+        Master<SimpleTask, Integer> master = new Master<>(4, DispatchMode.ROUND_ROBIN, 16);
+
+        //注册结果聚合：求和、直方图、前3名
+        master.addReducer(Reducers.longSum(Integer::longValue));
+        master.addReducer(Reducers.histogram(Integer::longValue));
+        master.addReducer(Reducers.topK(3, Integer::compare));
 
         //定期向master提交任务
         ThreadUtil.scheduleAtFixedRate(() -> master.submit(
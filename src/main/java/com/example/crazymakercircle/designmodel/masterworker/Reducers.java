@@ -0,0 +1,209 @@
+package com.example.crazymakercircle.designmodel.masterworker;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToLongFunction;
+
+/**
+ * 常用的结果聚合器
+ */
+public class Reducers
+{
+    /**
+     * 求和：每个 Worker 一个带缓存行填充的 long 累加槽
+     *
+     * @param mapper 把任务结果转换为 long，例如 Integer::longValue
+     */
+    public static <R> ResultReducer<R, PaddedLong, Long> longSum(ToLongFunction<? super R> mapper)
+    {
+        return new LongSumReducer<>(mapper);
+    }
+
+    /**
+     * 直方图：按 2 的幂分为 64 个桶，第 i 个桶统计 [2^(i-1), 2^i) 区间内的值，第 0 个桶统计 0 和负数
+     *
+     * @param mapper 把任务结果转换为 long，例如任务耗时
+     */
+    public static <R> ResultReducer<R, AtomicLongArray, long[]> histogram(ToLongFunction<? super R> mapper)
+    {
+        return new HistogramReducer<>(mapper);
+    }
+
+    /**
+     * 前 K 名：每个 Worker 保留自己的前 K 名，读取时再合并出全局的前 K 名（从大到小）
+     *
+     * @param k          名次数量
+     * @param comparator 比较结果的大小
+     */
+    public static <R> ResultReducer<R, PriorityQueue<R>, List<R>> topK(int k, Comparator<? super R> comparator)
+    {
+        return new TopKReducer<>(k, comparator);
+    }
+
+    //前后各填充 7 个 long，避免相邻 Worker 的累加槽处于同一缓存行
+    static class LhsPadding
+    {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    static class Value extends LhsPadding
+    {
+        volatile long value;
+    }
+
+    public static class PaddedLong extends Value
+    {
+        long p9, p10, p11, p12, p13, p14, p15;
+
+        public long get()
+        {
+            return value;
+        }
+    }
+
+    static class LongSumReducer<R> implements ResultReducer<R, PaddedLong, Long>
+    {
+        private final ToLongFunction<? super R> mapper;
+
+        LongSumReducer(ToLongFunction<? super R> mapper)
+        {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public PaddedLong newSlot()
+        {
+            return new PaddedLong();
+        }
+
+        @Override
+        public void accumulate(PaddedLong slot, R result)
+        {
+            //单写线程，读-改-写不需要 CAS
+            slot.value = slot.value + mapper.applyAsLong(result);
+        }
+
+        @Override
+        public Long merge(List<PaddedLong> slots)
+        {
+            long sum = 0;
+            for (PaddedLong slot : slots)
+            {
+                sum += slot.value;
+            }
+            return sum;
+        }
+
+        @Override
+        public String name()
+        {
+            return "sum";
+        }
+    }
+
+    static class HistogramReducer<R> implements ResultReducer<R, AtomicLongArray, long[]>
+    {
+        private static final int BUCKETS = 64;
+        private final ToLongFunction<? super R> mapper;
+
+        HistogramReducer(ToLongFunction<? super R> mapper)
+        {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public AtomicLongArray newSlot()
+        {
+            return new AtomicLongArray(BUCKETS);
+        }
+
+        @Override
+        public void accumulate(AtomicLongArray slot, R result)
+        {
+            long value = mapper.applyAsLong(result);
+            int bucket = value <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+            //单写线程，lazySet 即可保证读线程最终可见
+            slot.lazySet(bucket, slot.get(bucket) + 1);
+        }
+
+        @Override
+        public long[] merge(List<AtomicLongArray> slots)
+        {
+            long[] counts = new long[BUCKETS];
+            for (AtomicLongArray slot : slots)
+            {
+                for (int i = 0; i < BUCKETS; i++)
+                {
+                    counts[i] += slot.get(i);
+                }
+            }
+            return counts;
+        }
+
+        @Override
+        public String name()
+        {
+            return "histogram";
+        }
+    }
+
+    static class TopKReducer<R> implements ResultReducer<R, PriorityQueue<R>, List<R>>
+    {
+        private final int k;
+        private final Comparator<? super R> comparator;
+
+        TopKReducer(int k, Comparator<? super R> comparator)
+        {
+            this.k = k;
+            this.comparator = comparator;
+        }
+
+        @Override
+        public PriorityQueue<R> newSlot()
+        {
+            //小顶堆，堆顶是当前第 K 名
+            return new PriorityQueue<>(k + 1, comparator);
+        }
+
+        @Override
+        public void accumulate(PriorityQueue<R> slot, R result)
+        {
+            //只有读取时才会有第二个线程，锁基本无竞争
+            synchronized (slot)
+            {
+                if (slot.size() < k)
+                {
+                    slot.offer(result);
+                } else if (comparator.compare(result, slot.peek()) > 0)
+                {
+                    slot.poll();
+                    slot.offer(result);
+                }
+            }
+        }
+
+        @Override
+        public List<R> merge(List<PriorityQueue<R>> slots)
+        {
+            List<R> all = new ArrayList<>();
+            for (PriorityQueue<R> slot : slots)
+            {
+                synchronized (slot)
+                {
+                    all.addAll(slot);
+                }
+            }
+            all.sort(comparator.reversed());
+            return all.size() > k ? new ArrayList<>(all.subList(0, k)) : all;
+        }
+
+        @Override
+        public String name()
+        {
+            return "top-" + k;
+        }
+    }
+}
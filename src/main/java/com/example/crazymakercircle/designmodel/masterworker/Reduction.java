@@ -0,0 +1,50 @@
+package com.example.crazymakercircle.designmodel.masterworker;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 注册到 Master 上的一个聚合，持有所有 Worker 的累加槽，get() 时惰性合并
+ *
+ * @param <R> 任务结果的类型
+ * @param <S> 累加槽的类型
+ * @param <V> 聚合值的类型
+ */
+public class Reduction<R, S, V>
+{
+    private final ResultReducer<R, S, V> reducer;
+
+    //所有 Worker 的累加槽，Worker 退出后它的槽仍然保留，结果不会丢失
+    private final List<S> slots = new CopyOnWriteArrayList<>();
+
+    Reduction(ResultReducer<R, S, V> reducer)
+    {
+        this.reducer = reducer;
+    }
+
+    S newSlot()
+    {
+        S slot = reducer.newSlot();
+        slots.add(slot);
+        return slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    void accumulate(Object slot, R result)
+    {
+        reducer.accumulate((S) slot, result);
+    }
+
+    /**
+     * 合并所有累加槽，得到当前的聚合值
+     */
+    public V get()
+    {
+        return reducer.merge(slots);
+    }
+
+    public String getName()
+    {
+        return reducer.name();
+    }
+}
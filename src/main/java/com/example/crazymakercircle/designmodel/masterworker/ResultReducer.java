@@ -0,0 +1,39 @@
+package com.example.crazymakercircle.designmodel.masterworker;
+
+import java.util.List;
+
+/**
+ * 任务结果的聚合器
+ * <p>
+ * 每个 Worker 持有一个独立的累加槽（slot），结果在 Worker 线程中累加到自己的槽里，
+ * 槽只有一个写线程，不存在竞争；读取聚合值时才把所有槽合并。
+ *
+ * @param <R> 任务结果的类型
+ * @param <S> 累加槽的类型
+ * @param <V> 聚合值的类型
+ */
+public interface ResultReducer<R, S, V>
+{
+    /**
+     * 为一个 Worker 创建累加槽
+     */
+    S newSlot();
+
+    /**
+     * 在 Worker 线程中累加一个结果，同一个槽只会被一个线程调用
+     */
+    void accumulate(S slot, R result);
+
+    /**
+     * 合并所有的累加槽，在读取线程中调用
+     */
+    V merge(List<S> slots);
+
+    /**
+     * 聚合器的名称，用于输出
+     */
+    default String name()
+    {
+        return getClass().getSimpleName();
+    }
+}
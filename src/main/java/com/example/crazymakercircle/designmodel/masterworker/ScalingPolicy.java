@@ -0,0 +1,101 @@
+package com.example.crazymakercircle.designmodel.masterworker;
+
+/**
+ * Master 的 worker 伸缩策略
+ * <p>
+ * Master 的调度线程每隔 checkIntervalMillis 评估一次：
+ * 积压任务数 × 平均任务耗时 / worker 数，得到新任务的预计等待时间，
+ * 超过 targetLatencyMillis 就增加一个 worker（不超过 maxWorkers）；
+ * 否则如果有 worker 空闲超过 idleTimeoutMillis，就让它执行完队列中剩余的任务后退出（不少于 minWorkers）。
+ */
+public class ScalingPolicy
+{
+    private final int minWorkers;
+    private final int maxWorkers;
+    private long targetLatencyMillis = 100;
+    private long idleTimeoutMillis = 30000;
+    private long checkIntervalMillis = 100;
+
+    private ScalingPolicy(int minWorkers, int maxWorkers)
+    {
+        if (minWorkers < 1 || maxWorkers < minWorkers)
+        {
+            throw new IllegalArgumentException("minWorkers=" + minWorkers + ", maxWorkers=" + maxWorkers);
+        }
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+    }
+
+    /**
+     * 固定数量的 worker，不伸缩
+     */
+    public static ScalingPolicy fixed(int workerCount)
+    {
+        return new ScalingPolicy(workerCount, workerCount);
+    }
+
+    /**
+     * 在 [minWorkers, maxWorkers] 之间伸缩，初始为 minWorkers 个
+     */
+    public static ScalingPolicy elastic(int minWorkers, int maxWorkers)
+    {
+        return new ScalingPolicy(minWorkers, maxWorkers);
+    }
+
+    /**
+     * 新任务预计等待时间的上限，超过则扩容
+     */
+    public ScalingPolicy targetLatencyMillis(long targetLatencyMillis)
+    {
+        this.targetLatencyMillis = targetLatencyMillis;
+        return this;
+    }
+
+    /**
+     * worker 空闲超过该时长则缩容
+     */
+    public ScalingPolicy idleTimeoutMillis(long idleTimeoutMillis)
+    {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * 评估伸缩的间隔
+     */
+    public ScalingPolicy checkIntervalMillis(long checkIntervalMillis)
+    {
+        this.checkIntervalMillis = checkIntervalMillis;
+        return this;
+    }
+
+    public int getMinWorkers()
+    {
+        return minWorkers;
+    }
+
+    public int getMaxWorkers()
+    {
+        return maxWorkers;
+    }
+
+    public long getTargetLatencyMillis()
+    {
+        return targetLatencyMillis;
+    }
+
+    public long getIdleTimeoutMillis()
+    {
+        return idleTimeoutMillis;
+    }
+
+    public long getCheckIntervalMillis()
+    {
+        return checkIntervalMillis;
+    }
+
+    public boolean isElastic()
+    {
+        return maxWorkers > minWorkers;
+    }
+}
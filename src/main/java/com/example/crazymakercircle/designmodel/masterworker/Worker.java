@@ -1,23 +1,51 @@
 package com.example.crazymakercircle.designmodel.masterworker;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 public class Worker<T extends Task, R>
 {
-    // 接收任务的阻塞队列
-    private LinkedBlockingQueue<T> taskQueue = new LinkedBlockingQueue<>();
+    //空闲时两次窃取尝试之间的等待时间：从 200 微秒开始，窃取连续失败时逐次加倍，最长 10 毫秒
+    private static final long STEAL_INTERVAL_MICROS = 200;
+    private static final long MAX_STEAL_INTERVAL_MICROS = 10_000;
+    //不窃取时，空闲等待的最长时间，到期后检查是否需要退出
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    // 接收任务的阻塞双端队列：自己从队头取，窃取者从队尾取
+    private LinkedBlockingDeque<T> taskQueue = new LinkedBlockingDeque<>();
     //worker 的编号
     static AtomicInteger index = new AtomicInteger(1);
     private int workerId;
     //执行任务的线程
     private Thread thread = null;
+    //结果回调，绑定在执行任务的 Worker 上（任务被窃取时由窃取者回调）
+    private final Consumer resultAction;
+
+    //可以窃取任务的同伴，为 null 时不窃取
+    private volatile List<Worker<T, R>> peers = null;
+    //是否正在执行任务
+    private volatile boolean busy = false;
+    private volatile boolean running = true;
+    //连续没有取到任务的次数（最多记到 6，200 << 6 已超过上限），只由 worker 线程访问
+    private int idleRounds = 0;
+
+    //是否正在退役：不再接收新任务，执行完队列中剩余的任务后退出
+    private volatile boolean retiring = false;
+    //退役完成后的回调
+    private volatile Runnable onRetired = null;
+
+    //任务耗时的指数移动平均（纳秒），以及最近一次执行任务的时间
+    private volatile long avgTaskNanos = 0;
+    private volatile long lastActiveNanos = System.nanoTime();
 
-    public Worker()
+    public Worker(Consumer resultAction)
     {
+        this.resultAction = resultAction;
         this.workerId = index.getAndIncrement();
-        thread = new Thread(() -> this.run());
+        thread = new Thread(() -> this.run(), "worker-" + workerId);
         thread.start();
     }
 
@@ -27,29 +55,106 @@ public class Worker<T extends Task, R>
     public void run()
     {
         // 轮询启动所有的子任务
-        for (; ; )
+        while (running)
         {
             try
             {
-                //从阻塞队列中提取任务
-                T task = this.taskQueue.take();
+                T task = nextTask();
+                if (task == null)
+                {
+                    if (retiring)
+                    {
+                        //队列已经排空，退出
+                        break;
+                    }
+                    continue;
+                }
+                busy = true;
+                long start = System.nanoTime();
                 task.setWorkerId(workerId);
+                task.resultAction = resultAction;
                 task.execute();
+                lastActiveNanos = System.nanoTime();
+                //权重 1/8 的指数移动平均
+                long avg = avgTaskNanos;
+                avgTaskNanos = avg == 0 ? lastActiveNanos - start : avg + ((lastActiveNanos - start - avg) >> 3);
 
             } catch (InterruptedException e)
             {
-                e.printStackTrace();
+                if (running)
+                {
+                    e.printStackTrace();
+                }
+            } finally
+            {
+                busy = false;
+            }
+        }
+        Runnable callback = onRetired;
+        if (retiring && callback != null)
+        {
+            callback.run();
+        }
+    }
+
+    /**
+     * 先取自己队列中的任务，没有任务时尝试窃取，都没有则短暂等待
+     * <p>
+     * 等待期间自己的队列收到任务会立即返回；窃取连续失败时等待时间逐次加倍，
+     * Master 空闲时 worker 每秒只醒来约 100 次，而不是每 200 微秒一次
+     */
+    private T nextTask() throws InterruptedException
+    {
+        if (retiring)
+        {
+            //退役中：只排空自己的队列，不再窃取和等待
+            return this.taskQueue.pollFirst();
+        }
+        List<Worker<T, R>> stealFrom = peers;
+        if (stealFrom == null)
+        {
+            //从阻塞队列中提取任务
+            return this.taskQueue.pollFirst(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        T task = this.taskQueue.pollFirst();
+        if (task == null)
+        {
+            task = steal(stealFrom);
+        }
+        if (task == null)
+        {
+            long interval = Math.min(STEAL_INTERVAL_MICROS << idleRounds, MAX_STEAL_INTERVAL_MICROS);
+            task = this.taskQueue.pollFirst(interval, TimeUnit.MICROSECONDS);
+        }
+        idleRounds = task == null ? Math.min(idleRounds + 1, 6) : 0;
+        return task;
+    }
+
+    /**
+     * 从积压最多的同伴的队尾窃取一个任务
+     */
+    private T steal(List<Worker<T, R>> stealFrom)
+    {
+        Worker<T, R> victim = null;
+        int max = 0;
+        for (Worker<T, R> peer : stealFrom)
+        {
+            int size = peer.taskQueue.size();
+            if (peer != this && !peer.retiring && size > max)
+            {
+                max = size;
+                victim = peer;
             }
         }
+        return victim == null ? null : victim.taskQueue.pollLast();
     }
 
     //接收任务到异步队列
-    public void submit(T task, Consumer<R> action)
+    public void submit(T task)
     {
-        task.resultAction = action;
         try
         {
-            this.taskQueue.put(task);
+            this.taskQueue.putLast(task);
         } catch (InterruptedException e)
         {
             e.printStackTrace();
@@ -57,5 +162,68 @@ public class Worker<T extends Task, R>
 
     }
 
+    /**
+     * 当前的负载：队列中积压的任务数，加上正在执行的任务
+     */
+    public int getLoad()
+    {
+        return taskQueue.size() + (busy ? 1 : 0);
+    }
+
+    /**
+     * 开启工作窃取
+     *
+     * @param peers 可以窃取任务的 Worker 集合（可以包含自己）
+     */
+    public void enableStealing(List<Worker<T, R>> peers)
+    {
+        this.peers = peers;
+    }
+
+    public int getWorkerId()
+    {
+        return workerId;
+    }
+
+    public Consumer getResultAction()
+    {
+        return resultAction;
+    }
+
+    /**
+     * 退役：不再接收新任务，执行完队列中剩余的任务后线程退出
+     *
+     * @param onRetired 线程退出前的回调，在 worker 线程中执行
+     */
+    public void retire(Runnable onRetired)
+    {
+        this.onRetired = onRetired;
+        this.retiring = true;
+    }
+
+    /**
+     * 任务耗时的指数移动平均（纳秒），还没有执行过任务时为 0
+     */
+    public long getAvgTaskNanos()
+    {
+        return avgTaskNanos;
+    }
+
+    /**
+     * 已经空闲的时长（纳秒），正在执行或有积压任务时为 0
+     */
+    public long getIdleNanos()
+    {
+        return getLoad() > 0 ? 0 : System.nanoTime() - lastActiveNanos;
+    }
+
+    /**
+     * 停止执行线程，队列中未执行的任务被丢弃
+     */
+    public void shutdown()
+    {
+        running = false;
+        thread.interrupt();
+    }
 
 }
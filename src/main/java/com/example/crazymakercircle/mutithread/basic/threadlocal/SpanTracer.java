@@ -0,0 +1,278 @@
+package com.example.crazymakercircle.mutithread.basic.threadlocal;
+
+import com.example.crazymakercircle.util.LatencyHistogram;
+import com.example.crazymakercircle.util.Print;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 纳秒精度的耗时跟踪，支持嵌套的 span
+ * <p>
+ * 每个线程一份预先分配的 {@link Trace}：一个记录 span 起始时间的栈，和一个环形缓冲区，
+ * 按顺序保存最近的 span / 检查点（记录点、嵌套深度、耗时），写满后覆盖最早的记录。
+ * 记录点用 {@link #point(String)} 预先创建并缓存，热路径上只有 nanoTime、数组写入与直方图自增，
+ * 不拼接字符串，也不分配对象；字符串只在 printTrace / printSummary 时生成。
+ * <p>
+ * 每个记录点持有一个所有线程共用的 {@link LatencyHistogram}，汇总所有线程的耗时分布。
+ * <p>
+ * 线程池中的线程在多个任务之间复用同一份缓冲区，end() 只清空状态，不移除线程局部变量。
+ */
+public final class SpanTracer
+{
+    //每个线程保留最近多少条记录，2 的幂
+    static final int RING_SIZE = 256;
+    //span 最大嵌套深度，超出的部分只计数不记录
+    static final int MAX_DEPTH = 32;
+
+    private static final ConcurrentHashMap<String, Point> POINTS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Trace> TRACE = ThreadLocal.withInitial(Trace::new);
+
+    private SpanTracer()
+    {
+    }
+
+    /**
+     * 记录点，按名称缓存，同名的记录点共用一个直方图
+     */
+    public static final class Point
+    {
+        private final String name;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Point(String name)
+        {
+            this.name = name;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * 所有线程在该记录点上的耗时分布，单位纳秒
+         */
+        public LatencyHistogram.Snapshot snapshot()
+        {
+            return histogram.snapshot();
+        }
+    }
+
+    /**
+     * 取得或创建记录点，一般保存在静态常量中
+     */
+    public static Point point(String name)
+    {
+        Point p = POINTS.get(name);
+        return p != null ? p : POINTS.computeIfAbsent(name, Point::new);
+    }
+
+    /**
+     * 单个线程的跟踪状态，同时作为 enter() 返回的作用域，try-with-resources 结束时退出 span
+     */
+    public static final class Trace implements AutoCloseable
+    {
+        //span 的栈：起始时间、记录点、在环形缓冲区中的序号
+        private final long[] starts = new long[MAX_DEPTH];
+        private final Point[] spans = new Point[MAX_DEPTH];
+        private final long[] slots = new long[MAX_DEPTH];
+        private int depth;
+
+        //环形缓冲区，count 为写入过的总条数
+        private final Point[] points = new Point[RING_SIZE];
+        private final int[] depths = new int[RING_SIZE];
+        private final long[] nanos = new long[RING_SIZE];
+        private long count;
+
+        //跟踪开始与上一个检查点的时间
+        private long begin;
+        private long last;
+
+        private Trace()
+        {
+            //没有调用 begin() 时，第一个检查点从创建时开始计时
+            begin = last = System.nanoTime();
+        }
+
+        private void record(Point p, int level, long cost)
+        {
+            int i = (int) (count++ & (RING_SIZE - 1));
+            points[i] = p;
+            depths[i] = level;
+            nanos[i] = cost;
+            p.histogram.record(cost);
+        }
+
+        /**
+         * 进入 span 时先占一条记录，保证父 span 在子 span 之前输出，耗时在退出时补上
+         */
+        private void open(Point p)
+        {
+            spans[depth] = p;
+            slots[depth] = count;
+            int i = (int) (count++ & (RING_SIZE - 1));
+            points[i] = p;
+            depths[i] = depth;
+            nanos[i] = -1;
+            starts[depth] = System.nanoTime();
+        }
+
+        private void complete(long cost)
+        {
+            long slot = slots[depth];
+            //占位的记录还没有被覆盖时才补上耗时
+            if (count - slot <= RING_SIZE)
+            {
+                nanos[(int) (slot & (RING_SIZE - 1))] = cost;
+            }
+            spans[depth].histogram.record(cost);
+            spans[depth] = null;
+        }
+
+        /**
+         * 退出最内层的 span
+         */
+        @Override
+        public void close()
+        {
+            exit();
+        }
+    }
+
+    /**
+     * 开始跟踪，清空当前线程之前的记录
+     */
+    public static void begin()
+    {
+        Trace t = TRACE.get();
+        t.depth = 0;
+        t.count = 0;
+        t.begin = t.last = System.nanoTime();
+    }
+
+    /**
+     * 检查点：记录与上一个检查点（或 begin）之间的耗时
+     */
+    public static void checkpoint(Point point)
+    {
+        Trace t = TRACE.get();
+        long now = System.nanoTime();
+        t.record(point, Math.min(t.depth, MAX_DEPTH), now - t.last);
+        t.last = now;
+    }
+
+    /**
+     * 进入一个嵌套的 span，返回当前线程的作用域，可以配合 try-with-resources 使用
+     */
+    public static Trace enter(Point point)
+    {
+        Trace t = TRACE.get();
+        if (t.depth < MAX_DEPTH)
+        {
+            t.open(point);
+        }
+        t.depth++;
+        return t;
+    }
+
+    /**
+     * 退出最内层的 span，记录它的耗时
+     */
+    public static void exit()
+    {
+        Trace t = TRACE.get();
+        if (t.depth == 0)
+        {
+            return;
+        }
+        t.depth--;
+        if (t.depth < MAX_DEPTH)
+        {
+            t.complete(System.nanoTime() - t.starts[t.depth]);
+        }
+    }
+
+    /**
+     * 结束跟踪，未退出的 span 按结束时间记录
+     */
+    public static void end()
+    {
+        Trace t = TRACE.get();
+        while (t.depth > 0)
+        {
+            exit();
+        }
+        t.count = 0;
+        //下一次跟踪没有调用 begin() 时，从结束时开始计时
+        t.begin = t.last = System.nanoTime();
+    }
+
+    /**
+     * 输出当前线程最近的记录，嵌套的 span 缩进显示，单位毫秒
+     */
+    public static void printTrace()
+    {
+        Trace t = TRACE.get();
+        long from = Math.max(0, t.count - RING_SIZE);
+        StringBuilder sb = new StringBuilder();
+        sb.append("trace total: ").append(format(System.nanoTime() - t.begin)).append(" ms");
+        for (long n = from; n < t.count; n++)
+        {
+            int i = (int) (n & (RING_SIZE - 1));
+            sb.append("\n");
+            for (int d = 0; d < t.depths[i]; d++)
+            {
+                sb.append("  ");
+            }
+            sb.append(t.points[i].name).append(" cost: ");
+            sb.append(t.nanos[i] < 0 ? "running" : format(t.nanos[i]) + " ms");
+        }
+        Print.tcfo(sb);
+    }
+
+    /**
+     * 所有记录点在所有线程上的耗时分布，按名称排序，单位纳秒
+     */
+    public static Map<String, LatencyHistogram.Snapshot> snapshot()
+    {
+        Map<String, LatencyHistogram.Snapshot> result = new TreeMap<>();
+        for (Point p : POINTS.values())
+        {
+            result.put(p.name, p.histogram.snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * 输出有记录的记录点的耗时分布
+     */
+    public static void printSummary()
+    {
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshot().entrySet())
+        {
+            if (entry.getValue().getCount() > 0)
+            {
+                Print.tcfo(entry.getKey() + " (ns) => " + entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 清空所有记录点的直方图
+     */
+    public static void reset()
+    {
+        for (Point p : POINTS.values())
+        {
+            p.histogram.reset();
+        }
+    }
+
+    private static String format(long nanos)
+    {
+        return String.format("%.3f", nanos / 1e6);
+    }
+}
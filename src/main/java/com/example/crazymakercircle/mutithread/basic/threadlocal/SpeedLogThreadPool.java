@@ -8,6 +8,8 @@ import java.util.concurrent.TimeUnit;
 
 public class SpeedLogThreadPool extends ThreadPoolExecutor
 {
+    //整个任务作为最外层的 span，任务内的检查点与嵌套 span 都在它之下
+    private static final SpanTracer.Point TASK = SpanTracer.point("task");
 
     public SpeedLogThreadPool()
     {
@@ -27,9 +29,9 @@ public class SpeedLogThreadPool extends ThreadPoolExecutor
     protected void beforeExecute(Thread t, Runnable r)
     {
         super.beforeExecute(t, r);
-        Print.fo("start task execute.....");
         //开始耗时记录
         SpeedLog.beginSpeedLog();
+        SpanTracer.enter(TASK);
     }
 
     @Override
@@ -37,7 +39,7 @@ public class SpeedLogThreadPool extends ThreadPoolExecutor
     {
         try
         {
-            Print.fo("end task execute!");
+            SpanTracer.exit();
             SpeedLog.printCost(); //打印耗时
             SpeedLog.endSpeedLog(); //结束耗时记录
         } finally
@@ -52,6 +54,8 @@ public class SpeedLogThreadPool extends ThreadPoolExecutor
         try
         {
             Print.fo("线程结束!!!!");
+            //所有任务在各个检查点上的耗时分布
+            SpeedLog.printSummary();
         } finally
         {
             super.terminated();
@@ -4,6 +4,7 @@ import com.example.crazymakercircle.util.Print;
 
 import java.lang.ref.WeakReference;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static com.example.crazymakercircle.util.ThreadUtil.sleepMilliSeconds;
 import static com.example.crazymakercircle.util.ThreadUtil.sleepSeconds;
@@ -102,6 +103,57 @@ public class ThreadLocalTest2
             threadPool.submit(runnable);
         }
         latch.await();
+        //关闭线程池，terminated() 中输出各检查点的耗时分布
+        threadPool.shutdown();
+        threadPool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private static final SpanTracer.Point ORDER = SpanTracer.point("order");
+    private static final SpanTracer.Point STOCK = SpanTracer.point("order/stock");
+    private static final SpanTracer.Point PAY = SpanTracer.point("order/pay");
+
+    /**
+     * 测试用例：嵌套的 span，记录点预先创建，记录时不拼接字符串
+     */
+    @org.junit.Test
+    public void testNestedSpan() throws InterruptedException
+    {
+        SpanTracer.begin();
+        try (SpanTracer.Trace order = SpanTracer.enter(ORDER))
+        {
+            try (SpanTracer.Trace stock = SpanTracer.enter(STOCK))
+            {
+                sleepMilliSeconds(50);
+            }
+            try (SpanTracer.Trace pay = SpanTracer.enter(PAY))
+            {
+                sleepMilliSeconds(100);
+            }
+        }
+        SpanTracer.printTrace();
+        SpanTracer.end();
+
+        //多个线程的耗时汇总到同一个记录点的直方图
+        CountDownLatch latch = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++)
+        {
+            new Thread(() ->
+            {
+                SpanTracer.begin();
+                for (int j = 0; j < 1000; j++)
+                {
+                    try (SpanTracer.Trace order = SpanTracer.enter(ORDER))
+                    {
+                        SpanTracer.enter(STOCK).close();
+                    }
+                }
+                SpanTracer.end();
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        SpanTracer.printSummary();
+        Print.flush();
     }
 
 
@@ -2,8 +2,10 @@ package com.example.crazymakercircle.petstore.actor;
 
 import com.example.crazymakercircle.util.Print;
 
+import java.util.Collection;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.example.crazymakercircle.util.ThreadUtil.sleepMilliSeconds;
 
@@ -21,6 +23,9 @@ public class Consumer implements Runnable
     //消费总次数
     static final AtomicInteger TURN = new AtomicInteger(0);
 
+    //消费的商品总数，批量消费时一轮有多个
+    static final AtomicLong AMOUNT = new AtomicLong(0);
+
     //消费者对象编号
     static final AtomicInteger CONSUMER_NO = new AtomicInteger(1);
 
@@ -60,8 +65,18 @@ public class Consumer implements Runnable
             {
                 //执行消费动作
                 Object out = action.call();
-                if (null != out)
+                if (out instanceof Collection)
+                {
+                    //批量消费：一轮取出多个商品，只输出一行
+                    Collection<?> batch = (Collection<?>) out;
+                    if (!batch.isEmpty())
+                    {
+                        AMOUNT.addAndGet(batch.size());
+                        Print.tcfo("第" + TURN.get() + "轮消费：" + batch.size() + " 个商品");
+                    }
+                } else if (null != out)
                 {
+                    AMOUNT.incrementAndGet();
                     Print.tcfo("第" + TURN.get() + "轮消费：" + out);
                 }
                 //每一轮消费之后，稍微等待一下
@@ -72,4 +87,12 @@ public class Consumer implements Runnable
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 所有消费者已经消费的商品总数
+     */
+    public static long getAmount()
+    {
+        return AMOUNT.get();
+    }
+}
@@ -2,8 +2,10 @@ package com.example.crazymakercircle.petstore.actor;
 
 import com.example.crazymakercircle.util.Print;
 
+import java.util.Collection;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.example.crazymakercircle.util.ThreadUtil.sleepMilliSeconds;
 
@@ -19,6 +21,9 @@ public class Producer implements Runnable
     //总次数
     static final AtomicInteger TURN = new AtomicInteger(0);
 
+    //生产的商品总数，批量生产时一轮有多个
+    static final AtomicLong AMOUNT = new AtomicLong(0);
+
     //生产者对象编号
     static final AtomicInteger PRODUCER_NO = new AtomicInteger(1);
 
@@ -61,8 +66,15 @@ public class Producer implements Runnable
                 //执行生产动作
                 Object out = action.call();
                 //输出生产的结果
-                if (null != out)
+                if (out instanceof Collection)
+                {
+                    //批量生产：一轮放入多个商品，只输出一行
+                    Collection<?> batch = (Collection<?>) out;
+                    AMOUNT.addAndGet(batch.size());
+                    Print.tcfo("第" + TURN.get() + "轮生产：" + batch.size() + " 个商品");
+                } else if (null != out)
                 {
+                    AMOUNT.incrementAndGet();
                     Print.tcfo("第" + TURN.get() + "轮生产：" + out);
                 }
                 //每一轮生产之后，稍微等待一下
@@ -77,4 +89,12 @@ public class Producer implements Runnable
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 所有生产者已经生产的商品总数
+     */
+    public static long getAmount()
+    {
+        return AMOUNT.get();
+    }
+}
@@ -7,10 +7,14 @@ import com.example.crazymakercircle.petstore.goods.IGoods;
 import com.example.crazymakercircle.util.JvmUtil;
 import com.example.crazymakercircle.util.Print;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by 尼恩@疯狂创客圈.
@@ -20,6 +24,9 @@ public class ArrayBlockingQueuePetStore
 
     public static final int MAX_AMOUNT = 10; //数据区长度
 
+    //每批生产、消费的商品数
+    public static final int BATCH_SIZE = 5;
+
 
     //共享数据区，类定义
     static class DateBuffer<T>
@@ -34,6 +41,18 @@ public class ArrayBlockingQueuePetStore
             dataList.put(element);
         }
 
+        /**
+         * 向数据区批量增加元素，满时等待
+         * ArrayBlockingQueue 没有批量放入的方法，仍然逐个加锁
+         */
+        public void addAll(Collection<? extends T> elements) throws Exception
+        {
+            for (T element : elements)
+            {
+                dataList.put(element);
+            }
+        }
+
         /**
          * 从数据区取出一个商品
          */
@@ -41,6 +60,29 @@ public class ArrayBlockingQueuePetStore
         {
             return dataList.take();
         }
+
+        /**
+         * 从数据区批量取出商品：最多等待 timeout 取到第一个，
+         * 再一次加锁取出已有的其余商品，总共最多 max 个，锁与唤醒的开销由整批分摊
+         *
+         * @return 取出的商品，超时仍然为空或 max 小于等于 0 时返回空列表
+         */
+        public List<T> drainTo(int max, long timeout, TimeUnit unit) throws Exception
+        {
+            if (max <= 0)
+            {
+                //不取出任何元素，也不等待
+                return new ArrayList<>();
+            }
+            List<T> batch = new ArrayList<>(Math.min(max, MAX_AMOUNT));
+            T first = dataList.poll(timeout, unit);
+            if (first != null)
+            {
+                batch.add(first);
+                dataList.drainTo(batch, max - 1);
+            }
+            return batch;
+        }
     }
 
 
@@ -51,22 +93,24 @@ public class ArrayBlockingQueuePetStore
         //共享数据区，实例对象
         DateBuffer<IGoods> dateBuffer = new DateBuffer<>();
 
-        //生产者执行的动作
-        Callable<IGoods> produceAction = () ->
+        //生产者执行的动作，每轮生产一批
+        Callable<List<IGoods>> produceAction = () ->
         {
-            //首先生成一个随机的商品
-            IGoods goods = Goods.produceOne();
+            //首先生成一批随机的商品
+            List<IGoods> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++)
+            {
+                batch.add(Goods.produceOne());
+            }
             //将商品加上共享数据区
-            dateBuffer.add(goods);
-            return goods;
+            dateBuffer.addAll(batch);
+            return batch;
         };
-        //消费者执行的动作
-        Callable<IGoods> consumerAction = () ->
+        //消费者执行的动作，每轮最多取出一批
+        Callable<List<IGoods>> consumerAction = () ->
         {
-            // 从PetStore获取商品
-            IGoods goods = null;
-            goods = dateBuffer.fetch();
-            return goods;
+            // 从PetStore获取商品，最多等待 1 秒
+            return dateBuffer.drainTo(BATCH_SIZE, 1, TimeUnit.SECONDS);
         };
         // 同时并发执行的线程数
         final int THREAD_TOTAL = 20;
@@ -79,12 +123,12 @@ public class ArrayBlockingQueuePetStore
 
         for (int i = 0; i < PRODUCE_TOTAL; i++)
         {
-            //生产者线程每生产一个商品，间隔50ms
+            //生产者线程每生产一批商品，间隔50ms
             threadPool.submit(new Producer(produceAction, 50));
         }
         for (int i = 0; i < CONSUMER_TOTAL; i++)
         {
-            //消费者线程每消费一个商品，间隔100ms
+            //消费者线程每消费一批商品，间隔100ms
             threadPool.submit(new Consumer(consumerAction, 100));
         }
 
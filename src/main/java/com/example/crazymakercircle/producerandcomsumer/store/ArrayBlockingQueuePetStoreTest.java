@@ -0,0 +1,142 @@
+package com.example.crazymakercircle.producerandcomsumer.store;
+
+import com.example.crazymakercircle.petstore.goods.Goods;
+import com.example.crazymakercircle.petstore.goods.IGoods;
+import com.example.crazymakercircle.util.Print;
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 高生产速率下，DateBuffer 逐个取出与批量取出的吞吐量
+ * <p>
+ * 与 ArrayBlockingQueuePetStore.main 相同，11 个消费者；生产者不间断地批量放入事先生成的商品。
+ * 消费者每一轮除了取出商品，还有一段固定的开销（例如 Consumer 每轮输出一行），批量取出时由整批分摊
+ */
+public class ArrayBlockingQueuePetStoreTest
+{
+    private static final int CONSUMER_TOTAL = 11;
+    private static final int GOODS_TOTAL = 500_000;
+
+    @org.junit.Test
+    public void testBatchThroughput() throws InterruptedException
+    {
+        //第一轮预热
+        for (int round = 0; round < 2; round++)
+        {
+            for (int roundCost : new int[]{0, 5_000})
+            {
+                for (int producers : new int[]{1, 4})
+                {
+                    StringBuilder sb = new StringBuilder(producers + " 个生产者，" + CONSUMER_TOTAL
+                            + " 个消费者，每轮开销 " + roundCost + "ns：");
+                    for (int batch : new int[]{1, 5, 10})
+                    {
+                        long nanos = transfer(producers, batch, roundCost);
+                        sb.append(String.format(" batch=%d %.0f 个/ms", batch, GOODS_TOTAL / (nanos / 1e6)));
+                    }
+                    Print.tcfo(sb);
+                }
+            }
+        }
+    }
+
+    /**
+     * 传递 GOODS_TOTAL 个商品所用的时间
+     *
+     * @param batch     每次放入与取出的数量，为 1 时逐个 add/fetch
+     * @param roundCost 消费者每一轮的固定开销
+     */
+    private long transfer(int producers, int batch, int roundCost) throws InterruptedException
+    {
+        ArrayBlockingQueuePetStore.DateBuffer<IGoods> buffer = new ArrayBlockingQueuePetStore.DateBuffer<>();
+        List<IGoods> goods = new ArrayList<>(batch);
+        for (int i = 0; i < batch; i++)
+        {
+            goods.add(Goods.produceOne());
+        }
+        AtomicLong consumed = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        int perProducer = GOODS_TOTAL / producers / batch;
+        for (int p = 0; p < producers; p++)
+        {
+            threads.add(new Thread(() ->
+            {
+                try
+                {
+                    for (int i = 0; i < perProducer; i++)
+                    {
+                        if (batch == 1)
+                        {
+                            buffer.add(goods.get(0));
+                        } else
+                        {
+                            buffer.addAll(goods);
+                        }
+                    }
+                } catch (Exception e)
+                {
+                    //被中断，结束
+                }
+            }, "producer-" + p));
+        }
+        long total = (long) perProducer * producers * batch;
+        for (int c = 0; c < CONSUMER_TOTAL; c++)
+        {
+            threads.add(new Thread(() ->
+            {
+                try
+                {
+                    while (true)
+                    {
+                        int n = batch == 1
+                                ? (buffer.fetch() != null ? 1 : 0)
+                                : buffer.drainTo(batch, 1, TimeUnit.SECONDS).size();
+                        spin(roundCost);
+                        if (consumed.addAndGet(n) == total)
+                        {
+                            done.countDown();
+                        }
+                    }
+                } catch (Exception e)
+                {
+                    //被中断，结束
+                }
+            }, "consumer-" + c));
+        }
+
+        long start = System.nanoTime();
+        for (Thread t : threads)
+        {
+            t.start();
+        }
+        boolean finished = done.await(60, TimeUnit.SECONDS);
+        long nanos = System.nanoTime() - start;
+        for (Thread t : threads)
+        {
+            t.interrupt();
+        }
+        for (Thread t : threads)
+        {
+            t.join();
+        }
+        //没有传递完时，耗时只是等待的超时时间，吞吐量没有意义
+        Assert.assertTrue(producers + " 个生产者、batch=" + batch + " 没有在 60 秒内传递完", finished);
+        return nanos;
+    }
+
+    private static void spin(long nanos)
+    {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end)
+        {
+            Thread.onSpinWait();
+        }
+    }
+}
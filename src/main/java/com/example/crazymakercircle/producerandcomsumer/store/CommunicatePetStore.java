@@ -22,7 +22,7 @@ public class CommunicatePetStore {
 
 
     //共享数据区，类定义
-    static class DateBuffer<T> {
+    public static class DateBuffer<T> {
         //保存数据
         private List<T> dataList = new LinkedList<>();
         //保存数量
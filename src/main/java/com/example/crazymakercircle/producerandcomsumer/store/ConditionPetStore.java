@@ -0,0 +1,80 @@
+package com.example.crazymakercircle.producerandcomsumer.store;
+
+import com.example.crazymakercircle.petstore.actor.Consumer;
+import com.example.crazymakercircle.petstore.actor.Producer;
+import com.example.crazymakercircle.petstore.goods.Goods;
+import com.example.crazymakercircle.petstore.goods.IGoods;
+import com.example.crazymakercircle.util.JvmUtil;
+import com.example.crazymakercircle.util.Print;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用 ReentrantLock + Condition 的双锁缓冲区代替 PetStore4、PetStore5 的 wait/notify：
+ * 生产者与消费者各用一把锁，空时等待而不是抛出异常，等待可以设置超时
+ */
+public class ConditionPetStore
+{
+
+    public static final int MAX_AMOUNT = 10; //数据区长度
+
+    //等待的最长时间，超时后输出提示再继续下一轮
+    public static final int WAIT_TIMEOUT = 1000;
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        Print.cfo("当前进程的ID是" + JvmUtil.getProcessID());
+        System.setErr(System.out);
+        //共享数据区，实例对象
+        TwoLockDataBuffer<IGoods> dataBuffer = new TwoLockDataBuffer<>(MAX_AMOUNT);
+
+        //生产者执行的动作
+        Callable<IGoods> produceAction = () ->
+        {
+            //首先生成一个随机的商品
+            IGoods goods = Goods.produceOne();
+            //将商品加上共享数据区
+            if (!dataBuffer.offer(goods, WAIT_TIMEOUT, TimeUnit.MILLISECONDS))
+            {
+                Print.tcfo("队列已经满了！");
+                return null;
+            }
+            return goods;
+        };
+        //消费者执行的动作
+        Callable<IGoods> consumerAction = () ->
+        {
+            // 从PetStore获取商品
+            IGoods goods = dataBuffer.poll(WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+            if (goods == null)
+            {
+                Print.tcfo("队列已经空了！");
+            }
+            return goods;
+        };
+        // 同时并发执行的线程数
+        final int THREAD_TOTAL = 20;
+        //线程池，用于多线程模拟测试
+        ExecutorService threadPool = Executors.newFixedThreadPool(THREAD_TOTAL);
+
+        //假定共11条线程，其中有10个消费者，但是只有1个生产者；
+        final int CONSUMER_TOTAL = 11;
+        final int PRODUCE_TOTAL = 1;
+
+        for (int i = 0; i < PRODUCE_TOTAL; i++)
+        {
+            //生产者线程每生产一个商品，间隔50ms
+            threadPool.submit(new Producer(produceAction, 50));
+        }
+        for (int i = 0; i < CONSUMER_TOTAL; i++)
+        {
+            //消费者线程每消费一个商品，间隔100ms
+            threadPool.submit(new Consumer(consumerAction, 100));
+        }
+
+    }
+
+}
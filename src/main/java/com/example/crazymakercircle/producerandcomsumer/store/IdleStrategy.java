@@ -0,0 +1,59 @@
+package com.example.crazymakercircle.producerandcomsumer.store;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 缓冲区满或空时，阻塞式操作的等待方式
+ * <p>
+ * 实现没有状态，同一个实例可以被多个线程共享；每次调用传入连续失败的次数，由实现决定自旋、让出 CPU 还是休眠。
+ * 自旋的延迟最低但一直占用 CPU，休眠不占 CPU 但唤醒要等休眠结束，按生产与消费的速率选择。
+ */
+@FunctionalInterface
+public interface IdleStrategy
+{
+    /**
+     * 一直自旋，延迟最低，线程数多于 CPU 核数时不要使用
+     */
+    IdleStrategy BUSY_SPIN = attempts -> Thread.onSpinWait();
+
+    /**
+     * 每次让出 CPU
+     */
+    IdleStrategy YIELD = attempts -> Thread.yield();
+
+    /**
+     * 等待一次
+     *
+     * @param attempts 本次操作连续失败的次数，从 1 开始
+     */
+    void idle(int attempts);
+
+    /**
+     * 每次休眠固定的时间
+     */
+    static IdleStrategy park(long parkNanos)
+    {
+        return attempts -> LockSupport.parkNanos(parkNanos);
+    }
+
+    /**
+     * 逐级退避：先自旋 spins 次，再让出 CPU yields 次，之后休眠，休眠时间从 minParkNanos 开始翻倍，最长 maxParkNanos
+     */
+    static IdleStrategy backoff(int spins, int yields, long minParkNanos, long maxParkNanos)
+    {
+        return attempts ->
+        {
+            if (attempts <= spins)
+            {
+                Thread.onSpinWait();
+            } else if (attempts <= spins + yields)
+            {
+                Thread.yield();
+            } else
+            {
+                int shift = Math.min(attempts - spins - yields - 1, 20);
+                LockSupport.parkNanos(Math.min(minParkNanos << shift, maxParkNanos));
+            }
+        };
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.crazymakercircle.producerandcomsumer.store;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * 有界的多生产者、多消费者无锁环形缓冲区
+ * <p>
+ * 数组长度为 2 的幂，下标用位与计算；每个槽有一个序号，表示槽当前可以被哪个位置写入或读取：
+ * 序号等于位置 p 时槽空闲，可以写入第 p 个元素；写入后序号改为 p + 1，可以被读取；
+ * 读取后序号改为 p + capacity，留给下一圈写入。生产者与消费者各自用一次 CAS 认领位置，
+ * 认领之后只读写自己的槽，不加锁，也不像 LinkedList、LinkedBlockingQueue 那样为每个元素分配节点。
+ * <p>
+ * 生产者递增的 tail 与消费者递增的 head 前后填充，处于不同的缓存行，
+ * 避免生产者与消费者互相使对方的缓存行失效（伪共享）。
+ * <p>
+ * offer/poll 不阻塞，满或空时立即返回；put/take 以及带超时的 offer/poll 满或空时按 {@link IdleStrategy} 等待；
+ * drain 用一次 CAS 认领连续多个已写入的槽，批量取出。
+ */
+public class MpmcRingBuffer<E>
+{
+    private static final AtomicLongFieldUpdater<Value> VALUE =
+            AtomicLongFieldUpdater.newUpdater(Value.class, "value");
+
+    private final int capacity;
+    private final int mask;
+    //元素的可见性由槽序号的写入与读取保证
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+
+    //下一个待写入的位置，生产者 CAS 递增
+    private final Sequence tail = new Sequence();
+    //下一个待读取的位置，消费者 CAS 递增
+    private final Sequence head = new Sequence();
+
+    /**
+     * @param capacity 容量，向上取整为 2 的幂，最小为 2
+     */
+    public MpmcRingBuffer(int capacity)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("capacity=" + capacity);
+        }
+        //容量为 1 时，写入后的序号与下一圈空闲的序号相同，无法区分
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.elements = new Object[this.capacity];
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++)
+        {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 放入一个元素，缓冲区满时立即返回
+     *
+     * @return 缓冲区满时返回 false
+     */
+    public boolean offer(E e)
+    {
+        if (e == null)
+        {
+            throw new NullPointerException();
+        }
+        while (true)
+        {
+            long t = tail.value;
+            int index = (int) t & mask;
+            long diff = sequences.get(index) - t;
+            if (diff == 0)
+            {
+                if (tail.compareAndSet(t, t + 1))
+                {
+                    elements[index] = e;
+                    //发布元素，消费者读到新的序号后才读取元素
+                    sequences.lazySet(index, t + 1);
+                    return true;
+                }
+            } else if (diff < 0)
+            {
+                //槽中还是上一圈的元素，缓冲区满
+                return false;
+            }
+            //diff > 0：其他生产者已经认领了该位置，重新读取 tail
+        }
+    }
+
+    /**
+     * 取出一个元素，缓冲区空时立即返回
+     *
+     * @return 缓冲区空时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public E poll()
+    {
+        while (true)
+        {
+            long h = head.value;
+            int index = (int) h & mask;
+            long diff = sequences.get(index) - (h + 1);
+            if (diff == 0)
+            {
+                if (head.compareAndSet(h, h + 1))
+                {
+                    E e = (E) elements[index];
+                    elements[index] = null;
+                    //槽留给下一圈的生产者
+                    sequences.lazySet(index, h + capacity);
+                    return e;
+                }
+            } else if (diff < 0)
+            {
+                //该位置还没有写入，缓冲区空
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 放入一个元素，缓冲区满时按 idle 等待，直到放入
+     */
+    public void put(E e, IdleStrategy idle) throws InterruptedException
+    {
+        int attempts = 0;
+        while (!offer(e))
+        {
+            if (Thread.interrupted())
+            {
+                throw new InterruptedException();
+            }
+            idle.idle(++attempts);
+        }
+    }
+
+    /**
+     * 取出一个元素，缓冲区空时按 idle 等待，直到取到
+     */
+    public E take(IdleStrategy idle) throws InterruptedException
+    {
+        int attempts = 0;
+        E e;
+        while ((e = poll()) == null)
+        {
+            if (Thread.interrupted())
+            {
+                throw new InterruptedException();
+            }
+            idle.idle(++attempts);
+        }
+        return e;
+    }
+
+    /**
+     * 放入一个元素，缓冲区满时按 idle 等待，最多等待 timeout
+     *
+     * @return 超时仍未放入时返回 false
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit, IdleStrategy idle) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int attempts = 0;
+        while (!offer(e))
+        {
+            if (Thread.interrupted())
+            {
+                throw new InterruptedException();
+            }
+            if (System.nanoTime() - deadline >= 0)
+            {
+                return false;
+            }
+            idle.idle(++attempts);
+        }
+        return true;
+    }
+
+    /**
+     * 取出一个元素，缓冲区空时按 idle 等待，最多等待 timeout
+     *
+     * @return 超时仍未取到时返回 null
+     */
+    public E poll(long timeout, TimeUnit unit, IdleStrategy idle) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int attempts = 0;
+        E e;
+        while ((e = poll()) == null)
+        {
+            if (Thread.interrupted())
+            {
+                throw new InterruptedException();
+            }
+            if (System.nanoTime() - deadline >= 0)
+            {
+                return null;
+            }
+            idle.idle(++attempts);
+        }
+        return e;
+    }
+
+    /**
+     * 批量取出最多 max 个元素，交给 consumer 处理；缓冲区空时立即返回
+     * <p>
+     * 先检查从 head 开始连续多少个槽已经写入，再用一次 CAS 把 head 推进到末尾，认领这一段，
+     * 已写入的槽在被取出之前不会改变，CAS 成功后这一段只属于当前线程。
+     * 认领的元素全部取出、槽全部释放之后才调用 consumer；consumer 抛出异常时，这一批中其余的元素不再处理。
+     *
+     * @return 取出的元素数
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super E> consumer, int max)
+    {
+        int limit = Math.min(max, capacity);
+        while (true)
+        {
+            long h = head.value;
+            int n = 0;
+            while (n < limit && sequences.get((int) (h + n) & mask) == h + n + 1)
+            {
+                n++;
+            }
+            if (n == 0)
+            {
+                //可能是其他消费者刚刚推进了 head，重新读取后再判断是否为空
+                if (h == head.value)
+                {
+                    return 0;
+                }
+                continue;
+            }
+            if (!head.compareAndSet(h, h + n))
+            {
+                continue;
+            }
+            //先取出并释放认领的全部槽，再回调：consumer 抛出异常时槽也已经释放，缓冲区不会一直是满的
+            Object[] batch = new Object[n];
+            for (int i = 0; i < n; i++)
+            {
+                int index = (int) (h + i) & mask;
+                batch[i] = elements[index];
+                elements[index] = null;
+                sequences.lazySet(index, h + i + capacity);
+            }
+            for (int i = 0; i < n; i++)
+            {
+                consumer.accept((E) batch[i]);
+            }
+            return n;
+        }
+    }
+
+    /**
+     * 批量取出最多 max 个元素，加入 target
+     *
+     * @return 取出的元素数
+     */
+    public int drainTo(Collection<? super E> target, int max)
+    {
+        return drain(target::add, max);
+    }
+
+    /**
+     * 元素数量的估计值，并发修改时只是近似值
+     */
+    public int size()
+    {
+        while (true)
+        {
+            long h = head.value;
+            long t = tail.value;
+            //两次读取 head 相同时，h 与 t 是一致的
+            if (h == head.value)
+            {
+                return (int) Math.max(0, Math.min(t - h, capacity));
+            }
+        }
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    //前后各填充 7 个 long，使 tail 与 head 处于不同的缓存行
+    static class LhsPadding
+    {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    static class Value extends LhsPadding
+    {
+        volatile long value;
+    }
+
+    static final class Sequence extends Value
+    {
+        long p9, p10, p11, p12, p13, p14, p15;
+
+        boolean compareAndSet(long expect, long update)
+        {
+            return VALUE.compareAndSet(this, expect, update);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.crazymakercircle.producerandcomsumer.store;
+
+import com.example.crazymakercircle.util.Print;
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁环形缓冲区：满与空、批量取出、多生产者多消费者下不丢不重，以及与 JDK 阻塞队列的粗略对比
+ */
+public class MpmcRingBufferTest
+{
+    private static final IdleStrategy IDLE = IdleStrategy.backoff(64, 16, 1_000L, 100_000L);
+
+    @org.junit.Test
+    public void testOfferPoll() throws InterruptedException
+    {
+        MpmcRingBuffer<Integer> ring = new MpmcRingBuffer<>(10);
+        int offered = 0;
+        while (ring.offer(offered))
+        {
+            offered++;
+        }
+        //容量向上取整为 16
+        Print.tcfo("capacity=" + ring.capacity() + " offered=" + offered + " size=" + ring.size());
+
+        List<Integer> batch = new ArrayList<>();
+        int drained = ring.drainTo(batch, 5);
+        Print.tcfo("drained=" + drained + " " + batch + " next=" + ring.poll());
+
+        while (ring.poll() != null)
+        {
+        }
+        long start = System.nanoTime();
+        Integer timeout = ring.poll(50, TimeUnit.MILLISECONDS, IDLE);
+        Print.tcfo("empty poll=" + timeout + " waited=" + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    @org.junit.Test
+    public void testConcurrent() throws InterruptedException
+    {
+        int producers = 4;
+        int consumers = 4;
+        int perProducer = 200_000;
+        MpmcRingBuffer<Integer> ring = new MpmcRingBuffer<>(256);
+        //每个元素被取出的次数，必须都是 1
+        AtomicLongArray seen = new AtomicLongArray(producers * perProducer);
+        AtomicLong remaining = new AtomicLong(producers * perProducer);
+        CountDownLatch done = new CountDownLatch(producers + consumers);
+
+        for (int p = 0; p < producers; p++)
+        {
+            int base = p * perProducer;
+            new Thread(() ->
+            {
+                try
+                {
+                    for (int i = 0; i < perProducer; i++)
+                    {
+                        ring.put(base + i, IDLE);
+                    }
+                } catch (InterruptedException e)
+                {
+                    e.printStackTrace();
+                }
+                done.countDown();
+            }, "producer-" + p).start();
+        }
+        for (int c = 0; c < consumers; c++)
+        {
+            //一半的消费者逐个取出，另一半批量取出
+            boolean batch = c % 2 == 0;
+            new Thread(() ->
+            {
+                int attempts = 0;
+                while (remaining.get() > 0)
+                {
+                    int n;
+                    if (batch)
+                    {
+                        n = ring.drain(e -> seen.incrementAndGet(e), 32);
+                    } else
+                    {
+                        Integer e = ring.poll();
+                        if (e != null)
+                        {
+                            seen.incrementAndGet(e);
+                        }
+                        n = e == null ? 0 : 1;
+                    }
+                    if (n == 0)
+                    {
+                        IDLE.idle(++attempts);
+                    } else
+                    {
+                        attempts = 0;
+                        remaining.addAndGet(-n);
+                    }
+                }
+                done.countDown();
+            }, "consumer-" + c).start();
+        }
+        boolean finished = done.await(60, TimeUnit.SECONDS);
+
+        int lost = 0;
+        int duplicated = 0;
+        for (int i = 0; i < seen.length(); i++)
+        {
+            long count = seen.get(i);
+            if (count == 0)
+            {
+                lost++;
+            } else if (count > 1)
+            {
+                duplicated++;
+            }
+        }
+        Print.tcfo("finished=" + finished + " lost=" + lost + " duplicated=" + duplicated + " size=" + ring.size());
+        Assert.assertTrue(finished);
+        Assert.assertEquals(0, lost);
+        Assert.assertEquals(0, duplicated);
+    }
+
+    @org.junit.Test
+    public void testDrainThrowing()
+    {
+        MpmcRingBuffer<Integer> ring = new MpmcRingBuffer<>(4);
+        for (int i = 0; i < 4; i++)
+        {
+            Assert.assertTrue(ring.offer(i));
+        }
+        try
+        {
+            ring.drain(e ->
+            {
+                throw new IllegalStateException("consumer error");
+            }, 4);
+            Assert.fail();
+        } catch (IllegalStateException e)
+        {
+            //预期的异常
+        }
+        //consumer 抛出异常后，认领的槽已经全部释放
+        Assert.assertEquals(0, ring.size());
+        for (int i = 0; i < 4; i++)
+        {
+            Assert.assertTrue(ring.offer(i));
+        }
+    }
+
+    @org.junit.Test
+    public void testCompareWithBlockingQueue() throws InterruptedException
+    {
+        int total = 1_000_000;
+        for (int round = 0; round < 2; round++)
+        {
+            MpmcRingBuffer<Integer> ring = new MpmcRingBuffer<>(1024);
+            long ringNanos = transfer(() ->
+            {
+                for (int i = 0; i < total; i++)
+                {
+                    ring.put(i, IDLE);
+                }
+            }, () ->
+            {
+                int attempts = 0;
+                for (int i = 0; i < total; )
+                {
+                    int n = ring.drain(e -> { }, 64);
+                    i += n;
+                    if (n == 0)
+                    {
+                        IDLE.idle(++attempts);
+                    } else
+                    {
+                        attempts = 0;
+                    }
+                }
+            });
+            long abqNanos = transferQueue(total, new ArrayBlockingQueue<>(1024));
+            long lbqNanos = transferQueue(total, new LinkedBlockingQueue<>(1024));
+            Print.tcfo(String.format("%d 个元素，1 生产者 1 消费者：ring=%dms abq=%dms lbq=%dms",
+                    total, ringNanos / 1_000_000, abqNanos / 1_000_000, lbqNanos / 1_000_000));
+        }
+    }
+
+    private long transferQueue(int total, BlockingQueue<Integer> queue) throws InterruptedException
+    {
+        return transfer(() ->
+        {
+            for (int i = 0; i < total; i++)
+            {
+                queue.put(i);
+            }
+        }, () ->
+        {
+            for (int i = 0; i < total; i++)
+            {
+                queue.take();
+            }
+        });
+    }
+
+    interface Action
+    {
+        void run() throws InterruptedException;
+    }
+
+    private long transfer(Action producer, Action consumer) throws InterruptedException
+    {
+        Thread p = new Thread(() ->
+        {
+            try
+            {
+                producer.run();
+            } catch (InterruptedException e)
+            {
+                e.printStackTrace();
+            }
+        });
+        long start = System.nanoTime();
+        p.start();
+        consumer.run();
+        p.join();
+        return System.nanoTime() - start;
+    }
+}
@@ -2,58 +2,41 @@ package com.example.crazymakercircle.producerandcomsumer.store;
 
 import com.example.crazymakercircle.util.Print;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-
 //共享数据区，类定义
 class SafeDataBuffer<T>
 {
-    public static final int MAX_AMOUNT = 10;
-    private List<T> dataList = new LinkedList<>();
+    //环形缓冲区的容量为 2 的幂
+    public static final int MAX_AMOUNT = 16;
 
-    //保存数量
-    private AtomicInteger amount = new AtomicInteger(0);
+    //无锁环形缓冲区，数量由读写位置得出，不再单独计数
+    private final MpmcRingBuffer<T> dataBuffer = new MpmcRingBuffer<>(MAX_AMOUNT);
 
     /**
      * 向数据区增加一个元素
      */
-    public synchronized void add(T element) throws Exception
+    public void add(T element)
     {
-        if (amount.get() > MAX_AMOUNT)
+        if (!dataBuffer.offer(element))
         {
             Print.tcfo("队列已经满了！");
             return;
         }
-        dataList.add(element);
+        //输出在放入之后，不占用缓冲区
         Print.tcfo(element + "");
-        amount.incrementAndGet();
-
-        //如果数据不一致，抛出异常
-        if (amount.get() != dataList.size())
-        {
-            throw new Exception(amount + "!=" + dataList.size());
-        }
     }
 
     /**
      * 从数据区取出一个元素
      */
-    public synchronized T fetch() throws Exception
+    public T fetch()
     {
-        if (amount.get() <= 0)
+        T element = dataBuffer.poll();
+        if (element == null)
         {
             Print.tcfo("队列已经空了！");
             return null;
         }
-        T element = dataList.remove(0);
         Print.tcfo(element + "");
-        amount.decrementAndGet();
-        //如果数据不一致，抛出异常
-        if (amount.get() != dataList.size())
-        {
-            throw new Exception(amount + "!=" + dataList.size());
-        }
         return element;
     }
-}
\ No newline at end of file
+}
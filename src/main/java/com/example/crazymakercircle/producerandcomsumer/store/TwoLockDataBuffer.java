@@ -0,0 +1,322 @@
+package com.example.crazymakercircle.producerandcomsumer.store;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 双锁的有界链表缓冲区
+ * <p>
+ * 生产者只在队尾加入、只持有 putLock，消费者只从队头取出、只持有 takeLock，
+ * 队头始终是一个不存放元素的哨兵节点，队列为空时 head 与 last 指向同一个节点，两端不会修改同一个字段，
+ * 生产者与消费者不争用同一把锁。数量用 AtomicInteger 在两把锁之间共享。
+ * <p>
+ * 与 PetStore4、PetStore5 的 wait/notify 相比：
+ * 每个条件有自己的 Condition（notFull 只等待生产者，notEmpty 只等待消费者），signal 只唤醒一个同类线程；
+ * 被唤醒的线程发现还有空位或元素时接着唤醒下一个（级联唤醒），只有数量从 0 变为非 0、从满变为不满时才需要获取对方的锁；
+ * 取出是 O(1) 的摘除队头，不像 ArrayList.remove 那样移动其余元素；空或满时等待，而不是抛出 IndexOutOfBoundsException。
+ */
+public class TwoLockDataBuffer<T>
+{
+    private final int capacity;
+    private final AtomicInteger count = new AtomicInteger();
+
+    //哨兵节点，head.item 始终为 null
+    private Node<T> head;
+    private Node<T> last;
+
+    private final ReentrantLock takeLock = new ReentrantLock();
+    private final Condition notEmpty = takeLock.newCondition();
+    private final ReentrantLock putLock = new ReentrantLock();
+    private final Condition notFull = putLock.newCondition();
+
+    /**
+     * @param capacity 最多存放的元素数
+     */
+    public TwoLockDataBuffer(int capacity)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("capacity=" + capacity);
+        }
+        this.capacity = capacity;
+        last = head = new Node<>(null);
+    }
+
+    /**
+     * 加入一个元素，缓冲区满时等待
+     */
+    public void put(T element) throws InterruptedException
+    {
+        Node<T> node = newNode(element);
+        int c;
+        putLock.lockInterruptibly();
+        try
+        {
+            while (count.get() == capacity)
+            {
+                notFull.await();
+            }
+            c = enqueue(node);
+        } finally
+        {
+            putLock.unlock();
+        }
+        afterPut(c);
+    }
+
+    /**
+     * 加入一个元素，缓冲区满时最多等待 timeout
+     *
+     * @return 超时仍然满时返回 false
+     */
+    public boolean offer(T element, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        Node<T> node = newNode(element);
+        long nanos = unit.toNanos(timeout);
+        int c;
+        putLock.lockInterruptibly();
+        try
+        {
+            while (count.get() == capacity)
+            {
+                if (nanos <= 0)
+                {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            c = enqueue(node);
+        } finally
+        {
+            putLock.unlock();
+        }
+        afterPut(c);
+        return true;
+    }
+
+    /**
+     * 加入一个元素，缓冲区满时立即返回
+     *
+     * @return 缓冲区满时返回 false
+     */
+    public boolean offer(T element)
+    {
+        Node<T> node = newNode(element);
+        if (count.get() == capacity)
+        {
+            return false;
+        }
+        int c;
+        putLock.lock();
+        try
+        {
+            if (count.get() == capacity)
+            {
+                return false;
+            }
+            c = enqueue(node);
+        } finally
+        {
+            putLock.unlock();
+        }
+        afterPut(c);
+        return true;
+    }
+
+    /**
+     * 取出一个元素，缓冲区空时等待
+     */
+    public T take() throws InterruptedException
+    {
+        T element;
+        int c;
+        takeLock.lockInterruptibly();
+        try
+        {
+            while (count.get() == 0)
+            {
+                notEmpty.await();
+            }
+            element = dequeue();
+            c = afterDequeue();
+        } finally
+        {
+            takeLock.unlock();
+        }
+        afterTake(c);
+        return element;
+    }
+
+    /**
+     * 取出一个元素，缓冲区空时最多等待 timeout
+     *
+     * @return 超时仍然为空时返回 null
+     */
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long nanos = unit.toNanos(timeout);
+        T element;
+        int c;
+        takeLock.lockInterruptibly();
+        try
+        {
+            while (count.get() == 0)
+            {
+                if (nanos <= 0)
+                {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            element = dequeue();
+            c = afterDequeue();
+        } finally
+        {
+            takeLock.unlock();
+        }
+        afterTake(c);
+        return element;
+    }
+
+    /**
+     * 取出一个元素，缓冲区空时立即返回
+     *
+     * @return 缓冲区空时返回 null
+     */
+    public T poll()
+    {
+        if (count.get() == 0)
+        {
+            return null;
+        }
+        T element;
+        int c;
+        takeLock.lock();
+        try
+        {
+            if (count.get() == 0)
+            {
+                return null;
+            }
+            element = dequeue();
+            c = afterDequeue();
+        } finally
+        {
+            takeLock.unlock();
+        }
+        afterTake(c);
+        return element;
+    }
+
+    public int size()
+    {
+        return count.get();
+    }
+
+    public int remainingCapacity()
+    {
+        return capacity - count.get();
+    }
+
+    private static <T> Node<T> newNode(T element)
+    {
+        if (element == null)
+        {
+            throw new NullPointerException();
+        }
+        return new Node<>(element);
+    }
+
+    /**
+     * 持有 putLock 时调用，返回加入之前的数量
+     */
+    private int enqueue(Node<T> node)
+    {
+        last = last.next = node;
+        int c = count.getAndIncrement();
+        if (c + 1 < capacity)
+        {
+            //还有空位，级联唤醒下一个生产者
+            notFull.signal();
+        }
+        return c;
+    }
+
+    /**
+     * 持有 takeLock 时调用，原来的第一个元素节点成为新的哨兵
+     */
+    private T dequeue()
+    {
+        Node<T> h = head;
+        Node<T> first = h.next;
+        //断开旧哨兵，帮助 GC
+        h.next = h;
+        head = first;
+        T element = first.item;
+        first.item = null;
+        return element;
+    }
+
+    /**
+     * 持有 takeLock 时调用，返回取出之前的数量
+     */
+    private int afterDequeue()
+    {
+        int c = count.getAndDecrement();
+        if (c > 1)
+        {
+            //还有元素，级联唤醒下一个消费者
+            notEmpty.signal();
+        }
+        return c;
+    }
+
+    /**
+     * 缓冲区从空变为非空时，唤醒等待的消费者
+     */
+    private void afterPut(int c)
+    {
+        if (c == 0)
+        {
+            takeLock.lock();
+            try
+            {
+                notEmpty.signal();
+            } finally
+            {
+                takeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 缓冲区从满变为不满时，唤醒等待的生产者
+     */
+    private void afterTake(int c)
+    {
+        if (c == capacity)
+        {
+            putLock.lock();
+            try
+            {
+                notFull.signal();
+            } finally
+            {
+                putLock.unlock();
+            }
+        }
+    }
+
+    static final class Node<T>
+    {
+        T item;
+        Node<T> next;
+
+        Node(T item)
+        {
+            this.item = item;
+        }
+    }
+}
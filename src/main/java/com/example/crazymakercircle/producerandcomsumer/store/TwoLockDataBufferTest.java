@@ -0,0 +1,100 @@
+package com.example.crazymakercircle.producerandcomsumer.store;
+
+import com.example.crazymakercircle.util.Print;
+import org.junit.Assert;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 双锁缓冲区：超时的 offer/poll，多生产者多消费者下不丢不重
+ */
+public class TwoLockDataBufferTest
+{
+    @org.junit.Test
+    public void testTimeout() throws InterruptedException
+    {
+        TwoLockDataBuffer<Integer> buffer = new TwoLockDataBuffer<>(2);
+        buffer.put(1);
+        buffer.put(2);
+        long start = System.nanoTime();
+        boolean offered = buffer.offer(3, 50, TimeUnit.MILLISECONDS);
+        Print.tcfo("满时 offer=" + offered + " waited=" + (System.nanoTime() - start) / 1_000_000 + "ms");
+
+        Print.tcfo("take=" + buffer.take() + " poll=" + buffer.poll() + " size=" + buffer.size());
+        start = System.nanoTime();
+        Integer polled = buffer.poll(50, TimeUnit.MILLISECONDS);
+        Print.tcfo("空时 poll=" + polled + " waited=" + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    @org.junit.Test
+    public void testConcurrent() throws InterruptedException
+    {
+        int producers = 4;
+        int consumers = 4;
+        int perThread = 100_000;
+        TwoLockDataBuffer<Integer> buffer = new TwoLockDataBuffer<>(10);
+        //每个元素被取出的次数，必须都是 1
+        AtomicLongArray seen = new AtomicLongArray(producers * perThread);
+        CountDownLatch done = new CountDownLatch(producers + consumers);
+
+        for (int p = 0; p < producers; p++)
+        {
+            int base = p * perThread;
+            new Thread(() ->
+            {
+                try
+                {
+                    for (int i = 0; i < perThread; i++)
+                    {
+                        buffer.put(base + i);
+                    }
+                } catch (InterruptedException e)
+                {
+                    e.printStackTrace();
+                }
+                done.countDown();
+            }, "producer-" + p).start();
+        }
+        for (int c = 0; c < consumers; c++)
+        {
+            new Thread(() ->
+            {
+                try
+                {
+                    for (int i = 0; i < perThread; i++)
+                    {
+                        seen.incrementAndGet(buffer.take());
+                    }
+                } catch (InterruptedException e)
+                {
+                    e.printStackTrace();
+                }
+                done.countDown();
+            }, "consumer-" + c).start();
+        }
+        long start = System.nanoTime();
+        boolean finished = done.await(60, TimeUnit.SECONDS);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        int lost = 0;
+        int duplicated = 0;
+        for (int i = 0; i < seen.length(); i++)
+        {
+            long count = seen.get(i);
+            if (count == 0)
+            {
+                lost++;
+            } else if (count > 1)
+            {
+                duplicated++;
+            }
+        }
+        Print.tcfo("finished=" + finished + " lost=" + lost + " duplicated=" + duplicated
+                + " size=" + buffer.size() + " " + millis + "ms");
+        Assert.assertTrue(finished);
+        Assert.assertEquals(0, lost);
+        Assert.assertEquals(0, duplicated);
+    }
+}
@@ -0,0 +1,457 @@
+package com.example.crazymakercircle.threadpool;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 分层的哈希时间轮
+ * <p>
+ * 时间按 tick 划分，第 0 层每个槽对应一个 tick，第 k 层每个槽对应 wheelSize^k 个 tick。
+ * 定时任务按到期的 tick 放入能容纳它的最低一层：到期 tick 与当前 tick 的高位相同的层。
+ * 高层的槽到期时把其中的任务重新放入低层（降级），第 0 层的槽到期时任务即到期，交给执行线程池运行。
+ * <p>
+ * 提交与取消都是 O(1)：提交只是放入无锁队列，取消只是一次 CAS 并放入取消队列，
+ * 由时间轮线程在下一个 tick 放入槽中或从槽的双向链表中摘除，槽只由时间轮线程访问，不需要加锁。
+ * 与 ScheduledThreadPoolExecutor 的堆相比，插入与取消不随任务数量增加而变慢，代价是到期时间按 tick 取整，
+ * 任务最多晚一个 tick 执行。
+ * <p>
+ * 时间轮线程只负责计时，任务在单独的执行线程池中运行，慢任务不会推迟其他任务的到期。
+ * 执行线程池不要使用 CALLER_RUNS 一类在提交线程中执行任务的拒绝策略，否则任务会在时间轮线程上运行，
+ * 推迟其他任务的到期。线程池拒绝的到期任务计入 getRejectedCount()，并放回下一个 tick 重新提交，
+ * 不会丢失，周期任务也不会因此停止；只有执行线程池已经关闭时才放弃。
+ */
+@Slf4j
+public class HashedTimingWheel
+{
+    private final long tickNanos;
+    private final int wheelBits;
+    private final int mask;
+    private final Executor executor;
+    private final Thread worker;
+
+    //每层的槽，只由时间轮线程访问
+    private final Bucket[][] levels;
+
+    private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+
+    private final long startNanos;
+    //已经处理过的 tick
+    private long currentTick;
+    //当前 tick 中被执行线程池拒绝、放回下一个 tick 的任务数
+    private int retried;
+    private volatile boolean stopped;
+
+    //等待到期的任务数，包括还在 pending 队列中的
+    private final AtomicInteger scheduled = new AtomicInteger();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param tick          时间轮的精度
+     * @param unit          tick 的单位
+     * @param wheelSize     每层的槽数，向上取整为 2 的幂
+     * @param executor      执行到期任务的线程池
+     * @param threadFactory 创建时间轮线程
+     */
+    public HashedTimingWheel(long tick, TimeUnit unit, int wheelSize, Executor executor, ThreadFactory threadFactory)
+    {
+        if (tick <= 0 || wheelSize < 2)
+        {
+            throw new IllegalArgumentException("tick=" + tick + ", wheelSize=" + wheelSize);
+        }
+        this.tickNanos = Math.max(1, unit.toNanos(tick));
+        this.wheelBits = 32 - Integer.numberOfLeadingZeros(wheelSize - 1);
+        this.mask = (1 << wheelBits) - 1;
+        this.executor = executor;
+        //覆盖 63 位 tick 所需的层数
+        int levelCount = (63 + wheelBits - 1) / wheelBits;
+        levels = new Bucket[levelCount][1 << wheelBits];
+        for (Bucket[] level : levels)
+        {
+            for (int i = 0; i < level.length; i++)
+            {
+                level[i] = new Bucket();
+            }
+        }
+        startNanos = System.nanoTime();
+        worker = threadFactory.newThread(this::run);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 延迟执行一次
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit)
+    {
+        return add(new Timeout(this, task, deadlineOf(delay, unit), 0));
+    }
+
+    /**
+     * 按固定频率执行，上一次执行结束后才安排下一次，与 ScheduledThreadPoolExecutor 相同：
+     * 执行晚了不会并发补上，任务抛出异常后不再执行
+     */
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit)
+    {
+        if (period <= 0)
+        {
+            throw new IllegalArgumentException("period=" + period);
+        }
+        return add(new Timeout(this, task, deadlineOf(initialDelay, unit), unit.toNanos(period)));
+    }
+
+    /**
+     * 等待到期的任务数
+     */
+    public int getScheduledCount()
+    {
+        return scheduled.get();
+    }
+
+    public long getExpiredCount()
+    {
+        return expired.sum();
+    }
+
+    /**
+     * 执行线程池拒绝的次数，被拒绝的任务在下一个 tick 重新提交，同一个任务可能被计入多次
+     */
+    public long getRejectedCount()
+    {
+        return rejected.sum();
+    }
+
+    /**
+     * 停止计时，未到期的任务不再执行；执行线程池由调用方关闭
+     */
+    public void stop()
+    {
+        stopped = true;
+        LockSupport.unpark(worker);
+    }
+
+    private long deadlineOf(long delay, TimeUnit unit)
+    {
+        return System.nanoTime() + Math.max(0, unit.toNanos(delay));
+    }
+
+    private Timeout add(Timeout timeout)
+    {
+        if (stopped)
+        {
+            throw new RejectedExecutionException("timing wheel stopped");
+        }
+        scheduled.incrementAndGet();
+        pending.add(timeout);
+        return timeout;
+    }
+
+    private void run()
+    {
+        while (!stopped)
+        {
+            long nextTickNanos = startNanos + (currentTick + 1) * tickNanos;
+            long sleep = nextTickNanos - System.nanoTime();
+            if (sleep > 0)
+            {
+                LockSupport.parkNanos(this, sleep);
+                continue;
+            }
+            //落后多个 tick 时逐个追上
+            currentTick++;
+            try
+            {
+                transferPending();
+                removeCancelled();
+                cascade();
+                expireBucket(levels[0][(int) (currentTick & mask)]);
+                if (retried > 0)
+                {
+                    log.warn("timer executor rejected {} timeouts, retry in next tick", retried);
+                    retried = 0;
+                }
+            } catch (Throwable t)
+            {
+                //一个 tick 出错不能让时间轮线程退出，否则之后的任务都不会到期
+                log.error("timing wheel tick error ==[{}]", t.getMessage(), t);
+            }
+        }
+    }
+
+    /**
+     * 新提交的任务放入槽中
+     */
+    private void transferPending()
+    {
+        Timeout t;
+        while ((t = pending.poll()) != null)
+        {
+            if (t.state == Timeout.INIT)
+            {
+                //到期时间向上取整到 tick
+                long offset = t.deadlineNanos - startNanos;
+                t.deadlineTick = offset <= 0 ? 0 : (offset + tickNanos - 1) / tickNanos;
+                place(t);
+            }
+        }
+    }
+
+    private void removeCancelled()
+    {
+        Timeout t;
+        while ((t = cancelled.poll()) != null)
+        {
+            if (t.bucket != null)
+            {
+                t.bucket.remove(t);
+            }
+        }
+    }
+
+    /**
+     * 放入能容纳到期 tick 的最低一层，已到期的直接执行
+     */
+    private void place(Timeout t)
+    {
+        if (t.deadlineTick <= currentTick)
+        {
+            expire(t);
+            return;
+        }
+        for (int k = 0; k < levels.length; k++)
+        {
+            int shift = wheelBits * (k + 1);
+            if (shift >= 63 || ((t.deadlineTick ^ currentTick) >>> shift) == 0)
+            {
+                levels[k][(int) ((t.deadlineTick >>> (wheelBits * k)) & mask)].add(t);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 当前 tick 跨过高层槽的边界时，把该槽中的任务降级到低层，从高层到低层依次处理
+     */
+    private void cascade()
+    {
+        for (int k = levels.length - 1; k >= 1; k--)
+        {
+            int shift = wheelBits * k;
+            if (shift < 63 && (currentTick & ((1L << shift) - 1)) == 0)
+            {
+                Bucket bucket = levels[k][(int) ((currentTick >>> shift) & mask)];
+                Timeout t;
+                while ((t = bucket.poll()) != null)
+                {
+                    place(t);
+                }
+            }
+        }
+    }
+
+    private void expireBucket(Bucket bucket)
+    {
+        Timeout t;
+        while ((t = bucket.poll()) != null)
+        {
+            expire(t);
+        }
+    }
+
+    private void expire(Timeout t)
+    {
+        if (!t.compareAndSetState(Timeout.INIT, Timeout.EXPIRED))
+        {
+            return;
+        }
+        scheduled.decrementAndGet();
+        try
+        {
+            executor.execute(t);
+            expired.increment();
+        } catch (RejectedExecutionException e)
+        {
+            rejected.increment();
+            if (executor instanceof ExecutorService && ((ExecutorService) executor).isShutdown())
+            {
+                log.warn("timer executor is shutdown, timeout dropped ==[{}]", e.getMessage());
+                return;
+            }
+            retry(t);
+        } catch (RuntimeException | Error e)
+        {
+            //拒绝策略在时间轮线程上执行了任务，任务抛出的异常不影响同一个槽中的其他任务
+            log.error("timeout task error ==[{}]", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 执行线程池拒绝的任务放回下一个 tick，恢复为未到期，仍然可以取消
+     */
+    private void retry(Timeout t)
+    {
+        retried++;
+        scheduled.incrementAndGet();
+        t.deadlineTick = currentTick + 1;
+        place(t);
+        t.state = Timeout.INIT;
+        if (t.periodicCancelled)
+        {
+            //拒绝期间被取消，cancel() 的 CAS 失败，这里补上
+            t.cancel();
+        }
+    }
+
+    /**
+     * 槽中的任务，双向链表，只由时间轮线程访问
+     */
+    private static final class Bucket
+    {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout t)
+        {
+            t.bucket = this;
+            t.prev = tail;
+            t.next = null;
+            if (tail == null)
+            {
+                head = t;
+            } else
+            {
+                tail.next = t;
+            }
+            tail = t;
+        }
+
+        void remove(Timeout t)
+        {
+            if (t.prev == null)
+            {
+                head = t.next;
+            } else
+            {
+                t.prev.next = t.next;
+            }
+            if (t.next == null)
+            {
+                tail = t.prev;
+            } else
+            {
+                t.next.prev = t.prev;
+            }
+            t.prev = t.next = null;
+            t.bucket = null;
+        }
+
+        Timeout poll()
+        {
+            Timeout t = head;
+            if (t != null)
+            {
+                remove(t);
+            }
+            return t;
+        }
+    }
+
+    /**
+     * 时间轮中的一个定时任务，可以取消
+     */
+    public static final class Timeout implements Runnable
+    {
+        static final int INIT = 0;
+        static final int EXPIRED = 1;
+        static final int CANCELLED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final HashedTimingWheel wheel;
+        private final Runnable task;
+        private final long periodNanos;
+        private long deadlineNanos;
+        private volatile int state = INIT;
+        //周期任务被取消后不再安排下一次
+        private volatile boolean periodicCancelled;
+
+        //以下字段只由时间轮线程访问
+        private long deadlineTick;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        Timeout(HashedTimingWheel wheel, Runnable task, long deadlineNanos, long periodNanos)
+        {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = periodNanos;
+        }
+
+        boolean compareAndSetState(int expect, int update)
+        {
+            return STATE.compareAndSet(this, expect, update);
+        }
+
+        /**
+         * 取消还没有到期的执行；周期任务同时取消之后的执行
+         *
+         * @return 还没有到期、取消成功时返回 true
+         */
+        public boolean cancel()
+        {
+            periodicCancelled = true;
+            if (!compareAndSetState(INIT, CANCELLED))
+            {
+                return false;
+            }
+            wheel.scheduled.decrementAndGet();
+            //从槽中摘除交给时间轮线程，取消本身只是一次 CAS
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled()
+        {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired()
+        {
+            return state == EXPIRED;
+        }
+
+        /**
+         * 在执行线程池中运行，周期任务运行结束后安排下一次
+         */
+        @Override
+        public void run()
+        {
+            task.run();
+            if (periodNanos > 0 && !periodicCancelled && !wheel.stopped)
+            {
+                deadlineNanos += periodNanos;
+                state = INIT;
+                wheel.add(this);
+                if (periodicCancelled)
+                {
+                    //与 cancel() 并发时，确保不会漏掉取消
+                    cancel();
+                }
+            }
+        }
+    }
+}
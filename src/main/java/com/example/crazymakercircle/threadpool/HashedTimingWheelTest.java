@@ -0,0 +1,166 @@
+package com.example.crazymakercircle.threadpool;
+
+import com.example.crazymakercircle.util.Print;
+import com.example.crazymakercircle.util.ThreadUtil;
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 时间轮：到期的准确性、取消与周期任务，以及大量超时任务的提交、取消开销
+ */
+public class HashedTimingWheelTest
+{
+    @org.junit.Test
+    public void testAccuracy() throws InterruptedException
+    {
+        HashedTimingWheel wheel = new HashedTimingWheel(1, TimeUnit.MILLISECONDS, 8,
+                Executors.newSingleThreadExecutor(), new ThreadUtil.CustomThreadFactory("wheel"));
+        //先完成输出相关的类加载，避免计入第一个任务的延迟
+        Print.tcfo("开始");
+        //槽数为 8 时，这些延迟分布在第 0 ~ 3 层，需要逐层降级
+        long[] delays = {0, 3, 7, 8, 20, 65, 100, 513, 1200};
+        CountDownLatch latch = new CountDownLatch(delays.length);
+        AtomicLong maxLate = new AtomicLong();
+        for (long delay : delays)
+        {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            wheel.schedule(() ->
+            {
+                long late = System.nanoTime() - deadline;
+                maxLate.accumulateAndGet(late, Math::max);
+                Print.tcfo("delay " + delay + "ms，晚了(us)：" + late / 1000);
+                latch.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        boolean finished = latch.await(5, TimeUnit.SECONDS);
+        Print.tcfo("未执行的任务数：" + latch.getCount() + "，最晚(us)：" + maxLate.get() / 1000);
+        wheel.stop();
+        Print.flush();
+        Assert.assertTrue(finished);
+    }
+
+    /**
+     * 执行线程池的队列很小，同一个 tick 到期的任务远多于队列容量：被拒绝的任务放回下一个 tick，不丢失，
+     * 周期任务在被拒绝之后继续执行
+     */
+    @org.junit.Test
+    public void testRejectedRetry() throws InterruptedException
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(10), new ThreadUtil.CustomThreadFactory("timer"));
+        HashedTimingWheel wheel = new HashedTimingWheel(1, TimeUnit.MILLISECONDS, 64,
+                executor, new ThreadUtil.CustomThreadFactory("wheel"));
+        int total = 2000;
+        CountDownLatch latch = new CountDownLatch(total);
+        AtomicInteger ticks = new AtomicInteger();
+        HashedTimingWheel.Timeout periodic = wheel.scheduleAtFixedRate(ticks::incrementAndGet, 5, 5, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < total; i++)
+        {
+            wheel.schedule(() ->
+            {
+                //模拟约 10 微秒的处理，让队列堆满
+                long deadline = System.nanoTime() + 10_000;
+                while (System.nanoTime() < deadline)
+                {
+                    Thread.onSpinWait();
+                }
+                latch.countDown();
+            }, 10, TimeUnit.MILLISECONDS);
+        }
+        boolean finished = latch.await(30, TimeUnit.SECONDS);
+        int count = ticks.get();
+        ThreadUtil.sleepMilliSeconds(100);
+        Print.tcfo("未执行的任务数：" + latch.getCount() + "，拒绝次数：" + wheel.getRejectedCount()
+                + "，周期任务 " + count + " 次，100ms 后 " + ticks.get() + " 次");
+        Assert.assertTrue(finished);
+        Assert.assertTrue(wheel.getRejectedCount() > 0);
+        Assert.assertFalse(periodic.isCancelled());
+        Assert.assertTrue(ticks.get() > count);
+        periodic.cancel();
+        wheel.stop();
+        executor.shutdown();
+        Print.flush();
+    }
+
+    @org.junit.Test
+    public void testCancelAndFixedRate() throws InterruptedException
+    {
+        AtomicInteger fired = new AtomicInteger();
+        HashedTimingWheel.Timeout timeout = ThreadUtil.delayRun(fired::incrementAndGet, 100, TimeUnit.MILLISECONDS);
+        Print.tcfo("取消：" + timeout.cancel());
+
+        AtomicInteger ticks = new AtomicInteger();
+        HashedTimingWheel.Timeout periodic = ThreadUtil.scheduleAtFixedRate(
+                () -> Print.tcfo("周期任务第 " + ticks.incrementAndGet() + " 次"), 50, TimeUnit.MILLISECONDS);
+        ThreadUtil.sleepMilliSeconds(280);
+        periodic.cancel();
+        int count = ticks.get();
+        ThreadUtil.sleepMilliSeconds(200);
+        Print.tcfo("取消的任务执行次数：" + fired.get() + "，周期任务取消前 " + count + " 次，取消后 " + ticks.get() + " 次");
+        Print.flush();
+        Assert.assertEquals(0, fired.get());
+        Assert.assertTrue(count > 0);
+    }
+
+    // 超时任务数
+    final int TIMEOUT_AMOUNT = 500_000;
+
+    /**
+     * 模拟大量的超时：提交后绝大多数在到期前被取消
+     */
+    @org.junit.Test
+    public void testScheduleCancelCost()
+    {
+        ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(1);
+        //与 ScheduledThreadPoolExecutor 一样，取消时从队列中移除
+        stpe.setRemoveOnCancelPolicy(true);
+        HashedTimingWheel wheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 512,
+                Executors.newSingleThreadExecutor(), new ThreadUtil.CustomThreadFactory("wheel"));
+        Runnable noop = () ->
+        {
+        };
+        for (int round = 0; round < 3; round++)
+        {
+            long start = System.nanoTime();
+            List<ScheduledFuture<?>> futures = new ArrayList<>(TIMEOUT_AMOUNT);
+            for (int i = 0; i < TIMEOUT_AMOUNT; i++)
+            {
+                futures.add(stpe.schedule(noop, 10_000 + ThreadLocalRandom.current().nextInt(50_000), TimeUnit.MILLISECONDS));
+            }
+            for (ScheduledFuture<?> future : futures)
+            {
+                future.cancel(false);
+            }
+            long stpeNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<HashedTimingWheel.Timeout> timeouts = new ArrayList<>(TIMEOUT_AMOUNT);
+            for (int i = 0; i < TIMEOUT_AMOUNT; i++)
+            {
+                timeouts.add(wheel.schedule(noop, 10_000 + ThreadLocalRandom.current().nextInt(50_000), TimeUnit.MILLISECONDS));
+            }
+            for (HashedTimingWheel.Timeout timeout : timeouts)
+            {
+                timeout.cancel();
+            }
+            long wheelNanos = System.nanoTime() - start;
+            Print.tcfo("提交+取消每个任务(ns)：ScheduledThreadPoolExecutor " + stpeNanos / TIMEOUT_AMOUNT
+                    + "，时间轮 " + wheelNanos / TIMEOUT_AMOUNT);
+        }
+        stpe.shutdownNow();
+        wheel.stop();
+        Print.flush();
+    }
+}
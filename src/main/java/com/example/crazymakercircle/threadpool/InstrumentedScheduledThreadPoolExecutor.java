@@ -0,0 +1,70 @@
+package com.example.crazymakercircle.threadpool;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带指标的定时线程池，见 {@link ThreadPoolMetrics}
+ * <p>
+ * 定时任务没有"提交时间"，排队时间记录的是实际开始时间比计划时间晚了多久；
+ * 任务不包装，开始时间放在执行线程的 ThreadLocal 中。
+ */
+public class InstrumentedScheduledThreadPoolExecutor extends ScheduledThreadPoolExecutor
+{
+    private final ThreadPoolMetrics metrics;
+
+    //执行线程中当前任务的开始时间
+    private final ThreadLocal<long[]> startNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    public InstrumentedScheduledThreadPoolExecutor(String name, int corePoolSize, ThreadFactory threadFactory)
+    {
+        this(name, corePoolSize, threadFactory, new AbortPolicy());
+    }
+
+    public InstrumentedScheduledThreadPoolExecutor(String name, int corePoolSize, ThreadFactory threadFactory,
+                                                   RejectedExecutionHandler handler)
+    {
+        super(corePoolSize, threadFactory, handler);
+        metrics = new ThreadPoolMetrics(name, this);
+        setRejectedExecutionHandler(handler);
+    }
+
+    public ThreadPoolMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r)
+    {
+        long now = System.nanoTime();
+        if (r instanceof Delayed)
+        {
+            //getDelay 为负数，表示已经比计划时间晚了多久
+            metrics.queueWait.record(-((Delayed) r).getDelay(TimeUnit.NANOSECONDS));
+        }
+        startNanos.get()[0] = now;
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t)
+    {
+        metrics.runTime.record(System.nanoTime() - startNanos.get()[0]);
+    }
+
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler)
+    {
+        super.setRejectedExecutionHandler(
+                new InstrumentedThreadPoolExecutor.CountingRejectedHandler(handler, metrics.rejected));
+    }
+
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler()
+    {
+        return ((InstrumentedThreadPoolExecutor.CountingRejectedHandler) super.getRejectedExecutionHandler()).delegate;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.crazymakercircle.threadpool;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带指标的线程池：记录每个任务的排队时间、执行时间与拒绝次数，见 {@link ThreadPoolMetrics}
+ * <p>
+ * execute() 把任务包装为 TimedRunnable 记下提交时间，beforeExecute / afterExecute 中记录两段耗时，
+ * 每个任务的额外开销是一次小对象分配、三次 System.nanoTime() 与两次直方图记录（各约 15ns），
+ * 开销主要取决于 System.nanoTime() 的成本，在 TSC 时钟源上合计约 100ns，见 InstrumentedThreadPoolTest。
+ * 队列中保存的是包装后的任务，remove()、purge() 与 shutdownNow() 按原始任务处理。
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor
+{
+    private final ThreadPoolMetrics metrics;
+
+    public InstrumentedThreadPoolExecutor(String name,
+                                          int corePoolSize,
+                                          int maximumPoolSize,
+                                          long keepAliveTime,
+                                          TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue,
+                                          ThreadFactory threadFactory)
+    {
+        this(name, corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, new AbortPolicy());
+    }
+
+    public InstrumentedThreadPoolExecutor(String name,
+                                          int corePoolSize,
+                                          int maximumPoolSize,
+                                          long keepAliveTime,
+                                          TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue,
+                                          ThreadFactory threadFactory,
+                                          RejectedExecutionHandler handler)
+    {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+        metrics = new ThreadPoolMetrics(name, this);
+        //构造函数中设置的拒绝策略也要计数
+        setRejectedExecutionHandler(handler);
+    }
+
+    public ThreadPoolMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    @Override
+    public void execute(Runnable command)
+    {
+        if (command == null)
+        {
+            throw new NullPointerException();
+        }
+        super.execute(new TimedRunnable(command));
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r)
+    {
+        if (r instanceof TimedRunnable)
+        {
+            TimedRunnable timed = (TimedRunnable) r;
+            long now = System.nanoTime();
+            metrics.queueWait.record(now - timed.submitNanos);
+            timed.startNanos = now;
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t)
+    {
+        if (r instanceof TimedRunnable)
+        {
+            metrics.runTime.record(System.nanoTime() - ((TimedRunnable) r).startNanos);
+        }
+    }
+
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler)
+    {
+        super.setRejectedExecutionHandler(new CountingRejectedHandler(handler, metrics.rejected));
+    }
+
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler()
+    {
+        return ((CountingRejectedHandler) super.getRejectedExecutionHandler()).delegate;
+    }
+
+    @Override
+    public boolean remove(Runnable task)
+    {
+        for (Runnable r : getQueue())
+        {
+            if (r instanceof TimedRunnable && ((TimedRunnable) r).task == task)
+            {
+                return super.remove(r);
+            }
+        }
+        return super.remove(task);
+    }
+
+    /**
+     * 移除队列中已经取消的 Future：队列中是包装后的任务，父类的 purge() 识别不出其中的 Future
+     */
+    @Override
+    public void purge()
+    {
+        BlockingQueue<Runnable> queue = getQueue();
+        try
+        {
+            Iterator<Runnable> it = queue.iterator();
+            while (it.hasNext())
+            {
+                if (isCancelled(it.next()))
+                {
+                    it.remove();
+                }
+            }
+        } catch (ConcurrentModificationException e)
+        {
+            //迭代时队列被修改，改为逐个移除
+            for (Object r : queue.toArray())
+            {
+                if (isCancelled((Runnable) r))
+                {
+                    queue.remove(r);
+                }
+            }
+        }
+        //父类的 purge() 在移除之后尝试终止线程池
+        super.purge();
+    }
+
+    private static boolean isCancelled(Runnable r)
+    {
+        Runnable task = TaskWrapper.unwrapAll(r);
+        return task instanceof Future && ((Future<?>) task).isCancelled();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        List<Runnable> pending = super.shutdownNow();
+        List<Runnable> tasks = new ArrayList<>(pending.size());
+        for (Runnable r : pending)
+        {
+            tasks.add(r instanceof TimedRunnable ? ((TimedRunnable) r).task : r);
+        }
+        return tasks;
+    }
+
+    /**
+     * 记录提交时间的任务包装，开始时间只由执行线程读写
+     */
+    static final class TimedRunnable implements Runnable, TaskWrapper
+    {
+        final Runnable task;
+        final long submitNanos = System.nanoTime();
+        long startNanos;
+
+        TimedRunnable(Runnable task)
+        {
+            this.task = task;
+        }
+
+        @Override
+        public void run()
+        {
+            task.run();
+        }
+
+        @Override
+        public Runnable unwrap()
+        {
+            return task;
+        }
+    }
+
+    /**
+     * 统计拒绝次数，再交给原来的拒绝策略处理
+     */
+    static final class CountingRejectedHandler implements RejectedExecutionHandler
+    {
+        final RejectedExecutionHandler delegate;
+        private final LongAdder rejected;
+
+        CountingRejectedHandler(RejectedExecutionHandler delegate, LongAdder rejected)
+        {
+            this.delegate = delegate;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor)
+        {
+            rejected.increment();
+            delegate.rejectedExecution(r, executor);
+        }
+    }
+}
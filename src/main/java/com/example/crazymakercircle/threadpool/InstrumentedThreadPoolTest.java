@@ -0,0 +1,115 @@
+package com.example.crazymakercircle.threadpool;
+
+import com.example.crazymakercircle.util.Print;
+import com.example.crazymakercircle.util.ThreadUtil;
+import org.junit.Assert;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带指标的线程池：每个任务的额外开销，以及 ThreadUtil 线程池的指标输出
+ */
+public class InstrumentedThreadPoolTest
+{
+    // 任务数
+    final int TASK_AMOUNT = 2_000_000;
+    // 预热与计时的轮数
+    final int ROUNDS = 5;
+
+    @org.junit.Test
+    public void testOverhead() throws InterruptedException
+    {
+        ThreadPoolExecutor plain = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new ThreadUtil.CustomThreadFactory("plain"));
+        InstrumentedThreadPoolExecutor instrumented = new InstrumentedThreadPoolExecutor("instrumented", 1, 1, 0,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ThreadUtil.CustomThreadFactory("instrumented"));
+        long plainNanos = Long.MAX_VALUE;
+        long instrumentedNanos = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++)
+        {
+            plainNanos = Math.min(plainNanos, runTasks(plain));
+            instrumentedNanos = Math.min(instrumentedNanos, runTasks(instrumented));
+        }
+        Print.tcfo("普通线程池每个任务(ns)：" + plainNanos / TASK_AMOUNT
+                + "，带指标的线程池每个任务(ns)：" + instrumentedNanos / TASK_AMOUNT);
+        Print.tcfo(instrumented.getMetrics());
+        ThreadUtil.shutdownThreadPoolGracefully(plain);
+        ThreadUtil.shutdownThreadPoolGracefully(instrumented);
+    }
+
+    /**
+     * 队列中是包装后的任务：remove() 按原始任务移除，purge() 移除已经取消的 Future
+     */
+    @org.junit.Test
+    public void testRemoveAndPurge() throws InterruptedException
+    {
+        InstrumentedThreadPoolExecutor pool = new InstrumentedThreadPoolExecutor("purge", 1, 1, 0,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ThreadUtil.CustomThreadFactory("purge"));
+        CountDownLatch blocker = new CountDownLatch(1);
+        pool.execute(() ->
+        {
+            try
+            {
+                blocker.await();
+            } catch (InterruptedException e)
+            {
+                //结束
+            }
+        });
+        Runnable queued = () ->
+        {
+        };
+        pool.execute(queued);
+        Future<?> cancelled = pool.submit(queued);
+        Future<?> kept = pool.submit(queued);
+        Assert.assertTrue(pool.remove(queued));
+        cancelled.cancel(false);
+        pool.purge();
+        Print.tcfo("remove、purge 之后的队列长度：" + pool.getQueue().size());
+        Assert.assertEquals(1, pool.getQueue().size());
+        blocker.countDown();
+        ThreadUtil.shutdownThreadPoolGracefully(pool);
+        Assert.assertTrue(kept.isDone());
+    }
+
+    private long runTasks(ThreadPoolExecutor pool) throws InterruptedException
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        Runnable noop = () ->
+        {
+        };
+        long start = System.nanoTime();
+        for (int i = 0; i < TASK_AMOUNT - 1; i++)
+        {
+            pool.execute(noop);
+        }
+        pool.execute(latch::countDown);
+        latch.await();
+        return System.nanoTime() - start;
+    }
+
+    @org.junit.Test
+    public void testThreadUtilMetrics() throws InterruptedException
+    {
+        CountDownLatch latch = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++)
+        {
+            ThreadUtil.getMixedTargetThreadPool().execute(() ->
+            {
+                ThreadUtil.sleepMilliSeconds(10);
+                latch.countDown();
+            });
+        }
+        ThreadUtil.delayRun(() -> Print.tcfo("延迟任务"), 100, TimeUnit.MILLISECONDS);
+        latch.await();
+        ThreadUtil.sleepMilliSeconds(200);
+        for (ThreadPoolMetrics metrics : ThreadUtil.getThreadPoolMetrics().values())
+        {
+            Print.tcfo(metrics);
+        }
+    }
+}
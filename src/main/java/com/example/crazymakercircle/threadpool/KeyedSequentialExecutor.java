@@ -0,0 +1,181 @@
+package com.example.crazymakercircle.threadpool;
+
+import com.example.crazymakercircle.util.ThreadUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按 key 顺序执行的分段线程池
+ * <p>
+ * 固定 N 个分段，每个分段是一个单线程、有界队列的线程池，key 按哈希值分配到分段：
+ * 同一个 key 的任务总在同一个线程上按提交顺序执行，不同 key 的任务在多个线程上并行。
+ * 分段数量固定，不为每个 key 创建队列或锁，key 再多也不会增加内存；
+ * 代价是哈希到同一分段的 key 之间也是串行的，分段数应明显大于同时活跃的热点 key 数。
+ * <p>
+ * 过载策略会让任务在提交线程中执行的 CALLER_RUNS、HANDOFF 会破坏同一个 key 的顺序，不允许使用；
+ * BLOCK 且等待时间小于等于 0（一直等待）时不丢任务；BLOCK 设置了等待时间时，超时后抛出 RejectedExecutionException，
+ * ABORT、DISCARD_OLDEST、SHED 也会丢任务，但剩下的任务仍然有序。
+ * <p>
+ * 任务抛出的异常在分段内捕获并记录，分段的工作线程不会退出：工作线程退出后，
+ * 补充线程之前提交的新任务会作为新线程的第一个任务执行，排在队列中同一个 key 更早的任务之前。
+ */
+@Slf4j
+public class KeyedSequentialExecutor
+{
+    private final String name;
+    private final InstrumentedThreadPoolExecutor[] stripes;
+    private final int mask;
+
+    /**
+     * @param name               名称，分段线程池名为 name-0、name-1……
+     * @param stripes            分段数，向上取整为 2 的幂
+     * @param queueCapacity      每个分段的队列容量
+     * @param policy             分段队列满时的处理策略
+     * @param blockTimeoutMillis BLOCK 策略的最长等待时间，小于等于 0 表示一直等待
+     */
+    public KeyedSequentialExecutor(String name, int stripes, int queueCapacity,
+                                   OverloadPolicy policy, long blockTimeoutMillis)
+    {
+        if (policy == OverloadPolicy.CALLER_RUNS || policy == OverloadPolicy.HANDOFF)
+        {
+            throw new IllegalArgumentException(policy + " 会在提交线程中执行任务，不能保证同一个 key 的顺序");
+        }
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.name = name;
+        this.mask = size - 1;
+        this.stripes = new InstrumentedThreadPoolExecutor[size];
+        ThreadUtil.CustomThreadFactory factory = new ThreadUtil.CustomThreadFactory(name);
+        for (int i = 0; i < size; i++)
+        {
+            this.stripes[i] = new InstrumentedThreadPoolExecutor(name + "-" + i, 1, 1,
+                    0, TimeUnit.MILLISECONDS,
+                    policy.newQueue(queueCapacity),
+                    factory,
+                    policy.newHandler(blockTimeoutMillis));
+            //工作线程事先启动，之后提交的任务都经过队列
+            this.stripes[i].prestartCoreThread();
+        }
+    }
+
+    /**
+     * 提交任务，同一个 key 的任务按提交顺序执行
+     *
+     * @param key 实体的标识，例如用户 id、订单 id，按 hashCode() 分段
+     */
+    public void execute(Object key, Runnable command)
+    {
+        if (command == null)
+        {
+            throw new NullPointerException();
+        }
+        stripes[stripeOf(key)].execute(new KeyedTask(key, command));
+    }
+
+    /**
+     * key 所在的分段
+     */
+    public int stripeOf(Object key)
+    {
+        int h = key.hashCode();
+        //高位参与运算，避免只有高位不同的 key 落到同一分段
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public int getStripeCount()
+    {
+        return stripes.length;
+    }
+
+    /**
+     * 每个分段的指标，可以看出分段之间是否均衡
+     */
+    public List<ThreadPoolMetrics> getMetrics()
+    {
+        List<ThreadPoolMetrics> metrics = new ArrayList<>(stripes.length);
+        for (InstrumentedThreadPoolExecutor stripe : stripes)
+        {
+            metrics.add(stripe.getMetrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * 把每个分段的指标注册到 JMX
+     */
+    public KeyedSequentialExecutor registerMetrics()
+    {
+        for (InstrumentedThreadPoolExecutor stripe : stripes)
+        {
+            stripe.getMetrics().register();
+        }
+        return this;
+    }
+
+    /**
+     * 不再接收新任务，已提交的任务继续执行
+     */
+    public void shutdown()
+    {
+        for (InstrumentedThreadPoolExecutor stripe : stripes)
+        {
+            stripe.shutdown();
+        }
+    }
+
+    /**
+     * 等待所有分段执行完已提交的任务
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (InstrumentedThreadPoolExecutor stripe : stripes)
+        {
+            if (!stripe.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 捕获任务的异常，保证分段的工作线程不会因为任务出错而退出
+     */
+    static final class KeyedTask implements Runnable, TaskWrapper
+    {
+        final Object key;
+        final Runnable task;
+
+        KeyedTask(Object key, Runnable task)
+        {
+            this.key = key;
+            this.task = task;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                task.run();
+            } catch (Throwable t)
+            {
+                log.error("keyed task error, key={} ==[{}]", key, t.getMessage(), t);
+            }
+        }
+
+        @Override
+        public Runnable unwrap()
+        {
+            return task;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.crazymakercircle.threadpool;
+
+import com.example.crazymakercircle.util.Print;
+import com.example.crazymakercircle.util.ThreadUtil;
+import org.junit.Assert;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按 key 顺序执行：同一个 key 的顺序，以及与单线程顺序执行的吞吐量对比
+ */
+public class KeyedSequentialExecutorTest
+{
+    // key 的数量
+    final int KEY_AMOUNT = 64;
+    // 每个 key 的任务数
+    final int TASK_PER_KEY = 5000;
+
+    @org.junit.Test
+    public void testOrderPerKey() throws InterruptedException
+    {
+        checkOrder(0);
+    }
+
+    @org.junit.Test
+    public void testOrderWithFailingTasks() throws InterruptedException
+    {
+        //每个 key 有 5 个任务抛出异常，之后的任务仍然按顺序执行
+        checkOrder(1000);
+    }
+
+    /**
+     * @param failEvery 序号是它的倍数的任务在处理之后抛出异常，为 0 时不抛出
+     */
+    private void checkOrder(int failEvery) throws InterruptedException
+    {
+        KeyedSequentialExecutor executor = new KeyedSequentialExecutor("order", 8, 10000, OverloadPolicy.BLOCK, 0);
+        //每个 key 期望的下一个序号，只在该 key 所在的线程中读写
+        int[] expected = new int[KEY_AMOUNT];
+        AtomicInteger disorder = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(KEY_AMOUNT * TASK_PER_KEY);
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++)
+        {
+            int from = p * KEY_AMOUNT / producers.length;
+            int to = (p + 1) * KEY_AMOUNT / producers.length;
+            //每个生产者负责一部分 key，按序号递增提交
+            producers[p] = new Thread(() ->
+            {
+                for (int seq = 0; seq < TASK_PER_KEY; seq++)
+                {
+                    for (int key = from; key < to; key++)
+                    {
+                        int k = key;
+                        int s = seq;
+                        executor.execute("user-" + key, () ->
+                        {
+                            if (expected[k] != s)
+                            {
+                                disorder.incrementAndGet();
+                            }
+                            expected[k] = s + 1;
+                            latch.countDown();
+                            if (failEvery > 0 && s % failEvery == 0)
+                            {
+                                throw new IllegalStateException("task " + s + " of key " + k + " failed");
+                            }
+                        });
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        boolean finished = latch.await(60, TimeUnit.SECONDS);
+        Print.tcfo("乱序的任务数：" + disorder.get() + "，未执行的任务数：" + latch.getCount());
+        for (ThreadPoolMetrics metrics : executor.getMetrics())
+        {
+            Print.tcfo(metrics.getName() + " 完成任务数：" + metrics.getCompletedTaskCount());
+        }
+        Assert.assertTrue(finished);
+        Assert.assertEquals(0, disorder.get());
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        Print.flush();
+    }
+
+    @org.junit.Test
+    public void testThroughput() throws InterruptedException
+    {
+        Print.tcfo("CPU 核数：" + Runtime.getRuntime().availableProcessors());
+        for (int round = 0; round < 3; round++)
+        {
+            long seqNanos = run((key, task) -> ThreadUtil.seqExecute(task));
+            long keyedNanos = run(ThreadUtil::seqExecute);
+            long total = (long) KEY_AMOUNT * TASK_PER_KEY;
+            Print.tcfo("每秒任务数：单线程 seqExecute " + total * 1_000_000_000L / seqNanos
+                    + "，按 key 分段 " + total * 1_000_000_000L / keyedNanos);
+        }
+        Print.flush();
+    }
+
+    interface KeyedSubmitter
+    {
+        void execute(Object key, Runnable task);
+    }
+
+    private long run(KeyedSubmitter submitter) throws InterruptedException
+    {
+        CountDownLatch latch = new CountDownLatch(KEY_AMOUNT * TASK_PER_KEY);
+        Runnable task = () ->
+        {
+            //模拟约 1 微秒的处理
+            long deadline = System.nanoTime() + 1000;
+            while (System.nanoTime() < deadline)
+            {
+                Thread.onSpinWait();
+            }
+            latch.countDown();
+        };
+        long start = System.nanoTime();
+        for (int seq = 0; seq < TASK_PER_KEY; seq++)
+        {
+            for (int key = 0; key < KEY_AMOUNT; key++)
+            {
+                submitter.execute(key, task);
+            }
+        }
+        latch.await();
+        return System.nanoTime() - start;
+    }
+}
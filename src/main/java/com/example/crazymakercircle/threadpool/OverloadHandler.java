@@ -0,0 +1,180 @@
+package com.example.crazymakercircle.threadpool;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 {@link OverloadPolicy} 处理过载的拒绝策略，并统计每种处理方式的次数
+ */
+public class OverloadHandler implements RejectedExecutionHandler
+{
+    private final OverloadPolicy policy;
+    private final long blockTimeoutMillis;
+
+    //抛出异常的次数
+    private final LongAdder aborted = new LongAdder();
+    //由提交线程执行的次数
+    private final LongAdder callerRuns = new LongAdder();
+    //被丢弃的任务数（DISCARD_OLDEST / SHED）
+    private final LongAdder dropped = new LongAdder();
+    //提交线程等待的次数，以及等待超时的次数
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder blockTimeouts = new LongAdder();
+
+    OverloadHandler(OverloadPolicy policy, long blockTimeoutMillis)
+    {
+        this.policy = policy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor)
+    {
+        if (executor.isShutdown())
+        {
+            aborted.increment();
+            throw new RejectedExecutionException("线程池已经关闭");
+        }
+        switch (policy)
+        {
+            case CALLER_RUNS:
+            case HANDOFF:
+                callerRuns.increment();
+                r.run();
+                break;
+            case DISCARD_OLDEST:
+                discardOldest(r, executor.getQueue());
+                break;
+            case SHED:
+                shed(r, executor.getQueue());
+                break;
+            case BLOCK:
+                block(r, executor);
+                break;
+            default:
+                aborted.increment();
+                throw new RejectedExecutionException("线程池过载，任务被拒绝：" + r);
+        }
+    }
+
+    private void discardOldest(Runnable r, BlockingQueue<Runnable> queue)
+    {
+        while (!queue.offer(r))
+        {
+            Runnable oldest = queue.poll();
+            if (oldest == null)
+            {
+                //队列没有容量（例如 SynchronousQueue），只能丢弃新任务
+                drop(r);
+                return;
+            }
+            drop(oldest);
+        }
+    }
+
+    private void shed(Runnable r, BlockingQueue<Runnable> queue)
+    {
+        int priority = priorityOf(r);
+        //只在过载时扫描队列，找优先级最低的任务
+        Runnable victim = null;
+        int lowest = priority;
+        for (Runnable queued : queue)
+        {
+            int p = priorityOf(queued);
+            if (p < lowest)
+            {
+                lowest = p;
+                victim = queued;
+            }
+        }
+        if (victim != null && queue.remove(victim))
+        {
+            drop(victim);
+            if (queue.offer(r))
+            {
+                return;
+            }
+        }
+        drop(r);
+    }
+
+    private void block(Runnable r, ThreadPoolExecutor executor)
+    {
+        blocked.increment();
+        BlockingQueue<Runnable> queue = executor.getQueue();
+        try
+        {
+            boolean queued;
+            if (blockTimeoutMillis > 0)
+            {
+                queued = queue.offer(r, blockTimeoutMillis, TimeUnit.MILLISECONDS);
+            } else
+            {
+                queue.put(r);
+                queued = true;
+            }
+            if (!queued)
+            {
+                blockTimeouts.increment();
+                throw new RejectedExecutionException("等待 " + blockTimeoutMillis + "ms 后队列仍然已满");
+            }
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("提交任务时被中断", e);
+        }
+        //等待期间线程池被关闭，任务不会再被执行
+        if (executor.isShutdown() && queue.remove(r))
+        {
+            aborted.increment();
+            throw new RejectedExecutionException("线程池已经关闭");
+        }
+    }
+
+    private void drop(Runnable r)
+    {
+        if (r == null)
+        {
+            return;
+        }
+        dropped.increment();
+        //submit() 提交的任务被丢弃时取消，避免调用方一直等待结果
+        Runnable task = TaskWrapper.unwrapAll(r);
+        if (task instanceof Future)
+        {
+            ((Future<?>) task).cancel(false);
+        }
+    }
+
+    private static int priorityOf(Runnable r)
+    {
+        Runnable task = TaskWrapper.unwrapAll(r);
+        return task instanceof Prioritized ? ((Prioritized) task).getPriority() : Prioritized.NORMAL;
+    }
+
+    public OverloadPolicy getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * 各种处理方式的次数
+     */
+    public Map<String, Long> getCounters()
+    {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        counters.put("aborted", aborted.sum());
+        counters.put("callerRuns", callerRuns.sum());
+        counters.put("dropped", dropped.sum());
+        counters.put("blocked", blocked.sum());
+        counters.put("blockTimeouts", blockTimeouts.sum());
+        return counters;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.crazymakercircle.threadpool;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+
+/**
+ * 线程池过载（线程用满、队列已满）时的处理策略
+ * <p>
+ * 策略同时决定线程池的队列：HANDOFF 使用 SynchronousQueue 直接交给空闲线程，其余使用有界队列。
+ * 每种处理方式的次数记录在 {@link OverloadHandler} 中，可以从 ThreadPoolMetrics 读取。
+ */
+public enum OverloadPolicy
+{
+    //抛出 RejectedExecutionException
+    ABORT,
+    //由提交线程自己执行任务，提交方自然降速
+    CALLER_RUNS,
+    //丢弃队列中最老的任务
+    DISCARD_OLDEST,
+    //按优先级减载：丢弃队列中优先级更低的任务，没有更低的则丢弃新任务，见 Prioritized
+    SHED,
+    //提交线程在队列上等待，超时后拒绝
+    BLOCK,
+    //不排队，直接交给空闲线程，没有空闲线程时由提交线程执行
+    HANDOFF;
+
+    /**
+     * 创建与策略匹配的工作队列
+     *
+     * @param capacity 有界队列的容量，HANDOFF 时忽略
+     */
+    public BlockingQueue<Runnable> newQueue(int capacity)
+    {
+        if (this == HANDOFF)
+        {
+            return new SynchronousQueue<>();
+        }
+        return new LinkedBlockingQueue<>(capacity);
+    }
+
+    /**
+     * @param blockTimeoutMillis BLOCK 策略的最长等待时间，小于等于 0 表示一直等待
+     */
+    public OverloadHandler newHandler(long blockTimeoutMillis)
+    {
+        return new OverloadHandler(this, blockTimeoutMillis);
+    }
+
+    /**
+     * 从系统属性中读取策略，属性值不区分大小写，例如 caller_runs
+     */
+    public static OverloadPolicy fromProperty(String key, OverloadPolicy defaultPolicy)
+    {
+        String value = System.getProperty(key);
+        return value == null ? defaultPolicy : valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.crazymakercircle.threadpool;
+
+import com.example.crazymakercircle.util.Print;
+import com.example.crazymakercircle.util.ThreadUtil;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.crazymakercircle.util.ThreadUtil.sleepMilliSeconds;
+
+/**
+ * 突发提交下各种过载策略的表现：2 条线程、队列容量 4，一次提交 50 个耗时 10ms 的任务
+ */
+public class OverloadPolicyTest
+{
+    final int THREADS = 2;
+    final int QUEUE_CAPACITY = 4;
+    final int TASK_AMOUNT = 50;
+
+    //带优先级的任务，每 5 个中有一个高优先级
+    static class PriorityTask implements Runnable, Prioritized
+    {
+        final int priority;
+        final AtomicInteger done;
+
+        PriorityTask(int priority, AtomicInteger done)
+        {
+            this.priority = priority;
+            this.done = done;
+        }
+
+        @Override
+        public int getPriority()
+        {
+            return priority;
+        }
+
+        @Override
+        public void run()
+        {
+            sleepMilliSeconds(10);
+            done.incrementAndGet();
+        }
+    }
+
+    @org.junit.Test
+    public void testBurst()
+    {
+        for (OverloadPolicy policy : OverloadPolicy.values())
+        {
+            runBurst(policy);
+        }
+    }
+
+    private void runBurst(OverloadPolicy policy)
+    {
+        InstrumentedThreadPoolExecutor pool = new InstrumentedThreadPoolExecutor(
+                policy.name(),
+                THREADS,
+                THREADS,
+                0,
+                TimeUnit.SECONDS,
+                policy.newQueue(QUEUE_CAPACITY),
+                new ThreadUtil.CustomThreadFactory("overload"),
+                policy.newHandler(30));
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger highDone = new AtomicInteger();
+        int failed = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < TASK_AMOUNT; i++)
+        {
+            boolean high = i % 5 == 0;
+            try
+            {
+                pool.execute(new PriorityTask(high ? Prioritized.HIGH : Prioritized.LOW, high ? highDone : done));
+            } catch (RejectedExecutionException e)
+            {
+                failed++;
+            }
+        }
+        long submitTime = System.currentTimeMillis() - start;
+        ThreadUtil.shutdownThreadPoolGracefully(pool);
+        Print.tcfo(policy + " 提交耗时(ms)：" + submitTime
+                + "，完成：" + (done.get() + highDone.get()) + "（高优先级 " + highDone.get() + "/" + TASK_AMOUNT / 5 + "）"
+                + "，提交失败：" + failed
+                + "，计数：" + pool.getMetrics().getOverloadCounters());
+    }
+}
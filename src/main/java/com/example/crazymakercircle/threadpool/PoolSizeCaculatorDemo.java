@@ -51,6 +51,8 @@ public class PoolSizeCaculatorDemo extends PoolSizeCalculator
     public static void main(String[] args)
     {
         PoolSizeCalculator poolSizeCalculator = new PoolSizeCaculatorDemo();
+        //通过 JOL 遍历对象图计算队列元素的内存占用，不再依赖 System.gc() 前后的堆内存差值
+        poolSizeCalculator.setMemoryEstimation(MemoryEstimation.OBJECT_GRAPH);
         //期望 CPU 利用率为 1.0（即 100%）
         BigDecimal targetUtilization = new BigDecimal(0.8);
         //任务队列总大小不超过 100,000 字节
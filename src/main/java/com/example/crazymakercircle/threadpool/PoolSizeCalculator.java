@@ -1,6 +1,7 @@
 package com.example.crazymakercircle.threadpool;
 
 import com.example.crazymakercircle.util.Print;
+import org.openjdk.jol.info.GraphLayout;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -8,6 +9,7 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
  * A class that calculates the optimal thread pool boundaries. It takes the
@@ -50,6 +52,30 @@ public abstract class PoolSizeCalculator
      */
     private final long testtime = 3000;
 
+    /**
+     * How the memory usage of a single work queue element is measured.
+     */
+    public enum MemoryEstimation
+    {
+        /**
+         * Heap usage delta around repeated {@link System#gc()} calls. Slow and
+         * noisy, but works on any JVM.
+         */
+        HEAP_DELTA,
+        /**
+         * Deep size of the work queue object graph walked by JOL. Includes the
+         * queue node overhead, deterministic and fast.
+         */
+        OBJECT_GRAPH
+    }
+
+    private MemoryEstimation memoryEstimation = MemoryEstimation.HEAP_DELTA;
+
+    public void setMemoryEstimation(MemoryEstimation memoryEstimation)
+    {
+        this.memoryEstimation = memoryEstimation;
+    }
+
     /**
      * Calculates the boundaries of a thread pool for a given {@link Runnable}.
      *
@@ -71,7 +97,7 @@ public abstract class PoolSizeCalculator
 
     private void calculateOptimalCapacity(BigDecimal targetQueueSizeBytes)
     {
-        long mem = calculateMemoryUsage();
+        long mem = estimateMemoryUsage();
         BigDecimal queueCapacity = targetQueueSizeBytes.divide(new BigDecimal(mem), RoundingMode.HALF_UP);
         System.out.println("Target queue memory usage (bytes): " + targetQueueSizeBytes);
         System.out.println("createTask() produced " + createTask().getClass().getName() + " which took " + mem + " bytes in a queue");
@@ -79,6 +105,26 @@ public abstract class PoolSizeCalculator
         System.out.println("* Recommended queue capacity (bytes): " + queueCapacity);
     }
 
+    /**
+     * Calculates the work queue capacity that keeps the queue below the given
+     * memory budget, using the configured {@link MemoryEstimation}.
+     *
+     * @param targetQueueSizeBytes the desired maximum work queue size (bytes)
+     * @return recommended queue capacity, at least 1
+     */
+    public int calculateQueueCapacity(long targetQueueSizeBytes)
+    {
+        long mem = Math.max(1, estimateMemoryUsage());
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, targetQueueSizeBytes / mem));
+    }
+
+    private long estimateMemoryUsage()
+    {
+        return memoryEstimation == MemoryEstimation.OBJECT_GRAPH
+                ? calculateMemoryUsageByObjectGraph()
+                : calculateMemoryUsage();
+    }
+
     /**
      * Brian Goetz' optimal thread count formula, see 'Java Concurrency in   * Practice' (chapter 8.2)   *       * @param cpu    *            cpu time consumed by considered task   * @param wait   *            wait time of considered task   * @param targetUtilization      *            target utilization of the system
      */
@@ -180,6 +226,43 @@ public abstract class PoolSizeCalculator
         return (mem1 - mem0) / SAMPLE_QUEUE_SIZE;
     }
 
+    /**
+     * Calculates the memory usage of a single element in a work queue by
+     * walking the object graph of the queue with JOL, before and after adding
+     * the sample elements. The difference covers the deep size of each task
+     * plus the queue node that holds it.
+     *
+     * @return memory usage of a single {@link Runnable} element in the thread
+     * pools work queue
+     */
+    public long calculateMemoryUsageByObjectGraph()
+    {
+        return objectGraphElementSize(createWorkQueue(), this::createTask, SAMPLE_QUEUE_SIZE);
+    }
+
+    /**
+     * Deep size of a single queue element, see
+     * {@link #calculateMemoryUsageByObjectGraph()}. Can be used at startup to
+     * size a bounded queue for a task type without subclassing.
+     *
+     * @param emptyQueue     an empty instance of the work queue, must hold
+     *                       at least {@code samples} elements
+     * @param elementFactory creates the queue elements under investigation
+     * @param samples        number of elements to average over
+     * @return average memory usage of a single element (bytes)
+     */
+    @SuppressWarnings("unchecked")
+    public static long objectGraphElementSize(BlockingQueue emptyQueue, Supplier<?> elementFactory, int samples)
+    {
+        long empty = GraphLayout.parseInstance(emptyQueue).totalSize();
+        for (int i = 0; i < samples; i++)
+        {
+            emptyQueue.add(elementFactory.get());
+        }
+        long full = GraphLayout.parseInstance(emptyQueue).totalSize();
+        return (full - empty) / samples;
+    }
+
     /**
      * Create your runnable task here.
      *
@@ -0,0 +1,321 @@
+package com.example.crazymakercircle.threadpool;
+
+import com.example.crazymakercircle.util.ThreadUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程池大小的运行时调优器
+ * <p>
+ * PoolSizeCalculator 需要离线跑测试任务，这里改为对线上的线程池持续采样：
+ * 每个采样周期记录线程池的活跃线程数，并通过 ThreadMXBean 读取线程池中每条线程的 CPU 时间，
+ * 一个调优窗口结束后得到：
+ * 忙碌时间 = 平均活跃线程数 × 窗口时长，计算时间 C = 线程 CPU 时间之和，等待时间 W = 忙碌时间 - C，
+ * 再按 Goetz 的公式 N = CPU 核数 × 目标利用率 × (1 + W / C) 得到建议的线程数，
+ * 按吞吐量 × 允许的排队时长得到建议的队列容量（队列容量只输出，不修改）。
+ * <p>
+ * 开启 apply 时，建议值与当前值的差距超过 hysteresis，且连续 stableWindows 个窗口方向一致，
+ * 才通过 setCorePoolSize / setMaximumPoolSize 调整线程数，避免来回抖动。
+ * <p>
+ * 线程池的线程工厂需要是 {@link ThreadUtil.CustomThreadFactory}，按线程名前缀识别线程池中的线程。
+ */
+@Slf4j
+public class PoolSizeTuner
+{
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private final String name;
+    private final ThreadPoolExecutor pool;
+    private final String threadTag;
+
+    //目标 CPU 利用率
+    private double targetUtilization = 0.8;
+    //任务允许的排队时长，用于估算队列容量
+    private long maxQueueDelayMillis = 1000;
+    //线程数的调整范围
+    private int minThreads = 1;
+    private int maxThreads = 1024;
+    //采样周期，以及每个调优窗口包含的采样次数
+    private long sampleMillis = 200;
+    private int samplesPerWindow = 25;
+    //建议值与当前值的相对差距超过该比例才视为需要调整
+    private double hysteresis = 0.2;
+    //连续多少个窗口的建议方向一致才调整
+    private int stableWindows = 3;
+    //是否把建议值应用到线程池
+    private boolean apply = false;
+
+    //线程 id -> 上一次读取的 CPU 时间，只在采样线程中访问
+    private final Map<Long, Long> lastCpuNanos = new HashMap<>();
+    private long windowCpuNanos;
+    private long activeSum;
+    private int samples;
+    private long windowStartNanos;
+    private long windowStartCompleted;
+    //连续建议扩容（正数）或缩容（负数）的窗口数
+    private int trend;
+
+    private volatile Recommendation last;
+    private ScheduledFuture<?> future;
+
+    public PoolSizeTuner(String name, ThreadPoolExecutor pool)
+    {
+        ThreadFactory factory = pool.getThreadFactory();
+        if (!(factory instanceof ThreadUtil.CustomThreadFactory))
+        {
+            throw new IllegalArgumentException("线程池 " + name + " 需要使用 ThreadUtil.CustomThreadFactory");
+        }
+        this.name = name;
+        this.pool = pool;
+        this.threadTag = ((ThreadUtil.CustomThreadFactory) factory).getThreadTag();
+    }
+
+    public PoolSizeTuner targetUtilization(double targetUtilization)
+    {
+        this.targetUtilization = targetUtilization;
+        return this;
+    }
+
+    public PoolSizeTuner maxQueueDelayMillis(long maxQueueDelayMillis)
+    {
+        this.maxQueueDelayMillis = maxQueueDelayMillis;
+        return this;
+    }
+
+    public PoolSizeTuner threadRange(int minThreads, int maxThreads)
+    {
+        if (minThreads < 1 || maxThreads < minThreads)
+        {
+            throw new IllegalArgumentException("minThreads=" + minThreads + ", maxThreads=" + maxThreads);
+        }
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        return this;
+    }
+
+    public PoolSizeTuner sampling(long sampleMillis, int samplesPerWindow)
+    {
+        this.sampleMillis = sampleMillis;
+        this.samplesPerWindow = samplesPerWindow;
+        return this;
+    }
+
+    public PoolSizeTuner hysteresis(double hysteresis, int stableWindows)
+    {
+        this.hysteresis = hysteresis;
+        this.stableWindows = stableWindows;
+        return this;
+    }
+
+    public PoolSizeTuner apply(boolean apply)
+    {
+        this.apply = apply;
+        return this;
+    }
+
+    /**
+     * 在定时线程池中开始周期性采样
+     */
+    public synchronized PoolSizeTuner start()
+    {
+        if (future == null)
+        {
+            if (THREAD_MX_BEAN.isThreadCpuTimeSupported() && !THREAD_MX_BEAN.isThreadCpuTimeEnabled())
+            {
+                THREAD_MX_BEAN.setThreadCpuTimeEnabled(true);
+            }
+            resetWindow();
+            future = ThreadUtil.getSeqOrScheduledExecutorService()
+                    .scheduleAtFixedRate(this::sample, sampleMillis, sampleMillis, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    public synchronized void stop()
+    {
+        if (future != null)
+        {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    /**
+     * 最近一个窗口的建议值，还没有完整的窗口时为 null
+     */
+    public Recommendation getLastRecommendation()
+    {
+        return last;
+    }
+
+    private void resetWindow()
+    {
+        windowCpuNanos = 0;
+        activeSum = 0;
+        samples = 0;
+        windowStartNanos = System.nanoTime();
+        windowStartCompleted = pool.getCompletedTaskCount();
+    }
+
+    private void sample()
+    {
+        try
+        {
+            activeSum += pool.getActiveCount();
+            windowCpuNanos += collectCpuNanos();
+            if (++samples >= samplesPerWindow)
+            {
+                Recommendation r = recommend();
+                last = r;
+                log.info("pool {} {}", name, r);
+                if (apply)
+                {
+                    applyRecommendation(r);
+                }
+                resetWindow();
+            }
+        } catch (Throwable t)
+        {
+            //不让异常取消周期任务
+            log.error("pool {} tuner error ==[{}]", name, t.getMessage(), t);
+        }
+    }
+
+    /**
+     * 线程池中所有线程自上次采样以来的 CPU 时间增量
+     */
+    private long collectCpuNanos()
+    {
+        long delta = 0;
+        Map<Long, Long> seen = new HashMap<>();
+        for (ThreadInfo info : THREAD_MX_BEAN.getThreadInfo(THREAD_MX_BEAN.getAllThreadIds(), 0))
+        {
+            if (info == null || !info.getThreadName().startsWith(threadTag))
+            {
+                continue;
+            }
+            long id = info.getThreadId();
+            long cpu = THREAD_MX_BEAN.getThreadCpuTime(id);
+            if (cpu < 0)
+            {
+                continue;
+            }
+            Long prev = lastCpuNanos.get(id);
+            //新出现的线程以本次读数为基线
+            if (prev != null)
+            {
+                delta += cpu - prev;
+            }
+            seen.put(id, cpu);
+        }
+        //退出的线程不再跟踪
+        lastCpuNanos.clear();
+        lastCpuNanos.putAll(seen);
+        return delta;
+    }
+
+    private Recommendation recommend()
+    {
+        long windowNanos = System.nanoTime() - windowStartNanos;
+        long completed = pool.getCompletedTaskCount() - windowStartCompleted;
+        //忙碌时间：平均活跃线程数 × 窗口时长
+        long busyNanos = windowNanos * activeSum / samples;
+        long cpuNanos = Math.min(windowCpuNanos, busyNanos);
+        int threads = pool.getMaximumPoolSize();
+        if (cpuNanos <= 0 || completed == 0)
+        {
+            //窗口内没有任务，维持现状
+            return new Recommendation(threads, threads, 0, 0, pool.getQueue().remainingCapacity() + pool.getQueue().size());
+        }
+        double waitComputeRatio = (double) (busyNanos - cpuNanos) / cpuNanos;
+        int optimal = optimalThreadCount(CPU_COUNT, targetUtilization, waitComputeRatio);
+        optimal = Math.max(minThreads, Math.min(maxThreads, optimal));
+        double throughput = completed * 1e9 / windowNanos;
+        int queueCapacity = (int) Math.max(optimal, throughput * maxQueueDelayMillis / 1000);
+        return new Recommendation(threads, optimal, waitComputeRatio, throughput, queueCapacity);
+    }
+
+    /**
+     * Goetz 的线程数公式，见《Java Concurrency in Practice》8.2 节
+     *
+     * @param cpuCount          CPU 核数
+     * @param targetUtilization 目标 CPU 利用率（0~1）
+     * @param waitComputeRatio  任务的等待时间与计算时间之比
+     */
+    public static int optimalThreadCount(int cpuCount, double targetUtilization, double waitComputeRatio)
+    {
+        return (int) Math.ceil(cpuCount * targetUtilization * (1 + waitComputeRatio));
+    }
+
+    private void applyRecommendation(Recommendation r)
+    {
+        int current = pool.getMaximumPoolSize();
+        int diff = r.threads - current;
+        if (Math.abs(diff) <= current * hysteresis)
+        {
+            trend = 0;
+            return;
+        }
+        //方向改变时重新计数
+        trend = diff > 0 ? Math.max(trend, 0) + 1 : Math.min(trend, 0) - 1;
+        if (Math.abs(trend) < stableWindows)
+        {
+            return;
+        }
+        trend = 0;
+        //扩容先调 max 再调 core，缩容反之，保证 core <= max
+        if (diff > 0)
+        {
+            pool.setMaximumPoolSize(r.threads);
+            pool.setCorePoolSize(r.threads);
+        } else
+        {
+            pool.setCorePoolSize(r.threads);
+            pool.setMaximumPoolSize(r.threads);
+        }
+        log.info("pool {} resized: {} -> {}", name, current, r.threads);
+    }
+
+    /**
+     * 一个调优窗口的建议值
+     */
+    public static class Recommendation
+    {
+        //当前的线程数
+        public final int currentThreads;
+        //建议的线程数（core 与 max 相同）
+        public final int threads;
+        //等待时间与计算时间之比 W / C
+        public final double waitComputeRatio;
+        //每秒完成的任务数
+        public final double throughput;
+        //建议的队列容量
+        public final int queueCapacity;
+
+        Recommendation(int currentThreads, int threads, double waitComputeRatio, double throughput, int queueCapacity)
+        {
+            this.currentThreads = currentThreads;
+            this.threads = threads;
+            this.waitComputeRatio = waitComputeRatio;
+            this.throughput = throughput;
+            this.queueCapacity = queueCapacity;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("threads %d -> %d, W/C=%.2f, throughput=%.1f/s, queueCapacity=%d",
+                    currentThreads, threads, waitComputeRatio, throughput, queueCapacity);
+        }
+    }
+}
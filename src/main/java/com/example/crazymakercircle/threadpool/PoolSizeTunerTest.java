@@ -0,0 +1,78 @@
+package com.example.crazymakercircle.threadpool;
+
+import com.example.crazymakercircle.util.Print;
+import com.example.crazymakercircle.util.ThreadUtil;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.example.crazymakercircle.util.ThreadUtil.sleepMilliSeconds;
+import static com.example.crazymakercircle.util.ThreadUtil.sleepSeconds;
+
+/**
+ * 混合型任务（约 1ms 计算 + 9ms 阻塞）持续压入一个只有 2 条线程的线程池，
+ * 观察调优器给出的建议线程数，以及应用后的线程数
+ */
+public class PoolSizeTunerTest
+{
+    //模拟的混合型任务
+    static class MockMixedTask implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1);
+            while (System.nanoTime() < end)
+            {
+                //模拟计算
+            }
+            sleepMilliSeconds(9);
+        }
+    }
+
+    @org.junit.Test
+    public void testTuneMixedPool()
+    {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                2,
+                2,
+                30,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(10000),
+                new ThreadUtil.CustomThreadFactory("tune"));
+        PoolSizeTuner tuner = new PoolSizeTuner("tune", pool)
+                .sampling(50, 20)
+                .hysteresis(0.2, 2)
+                .threadRange(1, 64)
+                .apply(true)
+                .start();
+
+        //生产者：保持队列中总有任务
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread producer = new Thread(() ->
+        {
+            while (running.get())
+            {
+                if (pool.getQueue().size() < 100)
+                {
+                    pool.execute(new MockMixedTask());
+                } else
+                {
+                    sleepMilliSeconds(1);
+                }
+            }
+        });
+        producer.start();
+
+        for (int i = 0; i < 8; i++)
+        {
+            sleepSeconds(1);
+            Print.tcfo("线程数：" + pool.getMaximumPoolSize() + "，建议：" + tuner.getLastRecommendation());
+        }
+        running.set(false);
+        tuner.stop();
+        ThreadUtil.shutdownThreadPoolGracefully(pool);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.crazymakercircle.threadpool;
+
+/**
+ * 带优先级的任务，用于 {@link OverloadPolicy#SHED} 的减载：
+ * 队列满时，优先丢弃队列中优先级更低的任务，给优先级高的任务腾出位置
+ * 没有实现该接口的任务优先级为 {@link #NORMAL}
+ */
+public interface Prioritized
+{
+    int LOW = -10;
+    int NORMAL = 0;
+    int HIGH = 10;
+
+    int getPriority();
+}
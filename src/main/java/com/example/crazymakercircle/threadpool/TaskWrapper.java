@@ -0,0 +1,27 @@
+package com.example.crazymakercircle.threadpool;
+
+/**
+ * 线程池对任务的包装，例如记录时间、传递上下文
+ * <p>
+ * 队列中保存的是包装后的任务，{@link OverloadHandler} 丢弃任务、按优先级减载时，以及 purge() 时逐层取出原始任务：
+ * 原始任务是 submit() 返回的 Future 时将它取消，实现了 {@link Prioritized} 时按它的优先级处理
+ */
+interface TaskWrapper
+{
+    /**
+     * @return 被包装的任务，可能仍然是一个包装
+     */
+    Runnable unwrap();
+
+    /**
+     * 逐层去掉包装，取得调用方提交的原始任务
+     */
+    static Runnable unwrapAll(Runnable r)
+    {
+        while (r instanceof TaskWrapper)
+        {
+            r = ((TaskWrapper) r).unwrap();
+        }
+        return r;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.crazymakercircle.threadpool;
+
+import com.example.crazymakercircle.util.LatencyHistogram;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个线程池的指标，由 InstrumentedThreadPoolExecutor / InstrumentedScheduledThreadPoolExecutor 记录
+ * <p>
+ * 两种读取方式：
+ * 拉取：ThreadPoolMetrics.all() 或 ThreadUtil.getThreadPoolMetrics()，按线程池名索引
+ * JMX：register() 之后在 jconsole 等工具中查看，见 {@link ThreadPoolMetricsMXBean}
+ */
+public class ThreadPoolMetrics implements ThreadPoolMetricsMXBean
+{
+    private static final String DOMAIN = "com.example.crazymakercircle";
+
+    //所有已注册的线程池指标
+    private static final Map<String, ThreadPoolMetrics> REGISTRY = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final ThreadPoolExecutor pool;
+
+    final LatencyHistogram queueWait = new LatencyHistogram();
+    final LatencyHistogram runTime = new LatencyHistogram();
+    final LongAdder rejected = new LongAdder();
+
+    ThreadPoolMetrics(String name, ThreadPoolExecutor pool)
+    {
+        this.name = name;
+        this.pool = pool;
+    }
+
+    /**
+     * 所有已注册的线程池指标，按线程池名索引
+     */
+    public static Map<String, ThreadPoolMetrics> all()
+    {
+        return Collections.unmodifiableMap(REGISTRY);
+    }
+
+    /**
+     * 加入拉取索引并注册到平台 MBeanServer，同名的线程池只保留先注册的一个
+     */
+    public ThreadPoolMetrics register()
+    {
+        if (REGISTRY.putIfAbsent(name, this) != null)
+        {
+            return this;
+        }
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(DOMAIN + ":type=ThreadPool,name=" + ObjectName.quote(name)));
+        } catch (Exception e)
+        {
+            //JMX 不可用时仍然可以拉取
+            System.err.println("线程池 " + name + " 注册 JMX 失败：" + e.getMessage());
+        }
+        return this;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public int getPoolSize()
+    {
+        return pool.getPoolSize();
+    }
+
+    @Override
+    public int getActiveCount()
+    {
+        return pool.getActiveCount();
+    }
+
+    @Override
+    public int getQueueSize()
+    {
+        return pool.getQueue().size();
+    }
+
+    @Override
+    public long getCompletedTaskCount()
+    {
+        return pool.getCompletedTaskCount();
+    }
+
+    @Override
+    public long getRejectedCount()
+    {
+        return rejected.sum();
+    }
+
+    @Override
+    public String getOverloadPolicy()
+    {
+        RejectedExecutionHandler handler = pool.getRejectedExecutionHandler();
+        return handler instanceof OverloadHandler
+                ? ((OverloadHandler) handler).getPolicy().name()
+                : handler.getClass().getSimpleName();
+    }
+
+    @Override
+    public Map<String, Long> getOverloadCounters()
+    {
+        RejectedExecutionHandler handler = pool.getRejectedExecutionHandler();
+        return handler instanceof OverloadHandler
+                ? ((OverloadHandler) handler).getCounters()
+                : Collections.emptyMap();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getQueueWait()
+    {
+        return queueWait.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getRunTime()
+    {
+        return runTime.snapshot();
+    }
+
+    @Override
+    public void reset()
+    {
+        queueWait.reset();
+        runTime.reset();
+        rejected.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + " poolSize=" + getPoolSize()
+                + ", active=" + getActiveCount()
+                + ", queue=" + getQueueSize()
+                + ", completed=" + getCompletedTaskCount()
+                + ", rejected=" + getRejectedCount()
+                + ", overload=" + getOverloadPolicy() + getOverloadCounters()
+                + "\n  queueWait(ns): " + getQueueWait()
+                + "\n  runTime(ns):   " + getRunTime();
+    }
+}
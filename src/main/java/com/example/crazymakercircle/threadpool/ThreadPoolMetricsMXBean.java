@@ -0,0 +1,49 @@
+package com.example.crazymakercircle.threadpool;
+
+import com.example.crazymakercircle.util.LatencyHistogram;
+
+import java.util.Map;
+
+/**
+ * 线程池指标的 JMX 接口
+ * ObjectName 为 com.example.crazymakercircle:type=ThreadPool,name={线程池名}，时间单位均为纳秒
+ */
+public interface ThreadPoolMetricsMXBean
+{
+    String getName();
+
+    int getPoolSize();
+
+    int getActiveCount();
+
+    int getQueueSize();
+
+    long getCompletedTaskCount();
+
+    long getRejectedCount();
+
+    /**
+     * 过载策略，没有使用 OverloadHandler 时为拒绝策略的类名
+     */
+    String getOverloadPolicy();
+
+    /**
+     * 过载时各种处理方式的次数，见 OverloadHandler
+     */
+    Map<String, Long> getOverloadCounters();
+
+    /**
+     * 从提交到开始执行的等待时间
+     */
+    LatencyHistogram.Snapshot getQueueWait();
+
+    /**
+     * 任务的执行时间
+     */
+    LatencyHistogram.Snapshot getRunTime();
+
+    /**
+     * 清空两个直方图与拒绝计数
+     */
+    void reset();
+}
@@ -0,0 +1,48 @@
+package com.example.crazymakercircle.threadpool;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 当前线程的跟踪号，经过 {@link TracingExecutorService} 提交的任务在执行线程中继承提交线程的跟踪号
+ */
+public final class TraceContext
+{
+    private static final ThreadLocal<String> TRACE_ID = new ThreadLocal<>();
+
+    private TraceContext()
+    {
+    }
+
+    /**
+     * 当前线程的跟踪号，没有时为 null
+     */
+    public static String getTraceId()
+    {
+        return TRACE_ID.get();
+    }
+
+    public static void setTraceId(String traceId)
+    {
+        TRACE_ID.set(traceId);
+    }
+
+    /**
+     * 为当前线程生成新的跟踪号
+     */
+    public static String newTraceId()
+    {
+        String traceId = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+        TRACE_ID.set(traceId);
+        return traceId;
+    }
+
+    public static void clear()
+    {
+        TRACE_ID.remove();
+    }
+
+    static ThreadLocal<String> threadLocal()
+    {
+        return TRACE_ID;
+    }
+}
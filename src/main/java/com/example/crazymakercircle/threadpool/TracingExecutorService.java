@@ -0,0 +1,464 @@
+package com.example.crazymakercircle.threadpool;
+
+import com.example.crazymakercircle.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 可以包装任意线程池的跟踪装饰器，包括 ThreadUtil 中的线程池
+ * <p>
+ * 按任务类统计排队时间与执行时间（lambda 按所在的调用点区分），
+ * 记录执行最慢的 N 个任务，并把提交线程的跟踪号（{@link TraceContext}）
+ * 以及通过 propagate() 登记的其他 ThreadLocal 传递到执行线程，任务结束后恢复执行线程原来的值。
+ * <p>
+ * 每个任务的额外开销是一次包装对象分配、三次 System.nanoTime() 与两次直方图记录；
+ * 执行时间没有超过当前第 N 慢的任务时，不进入最慢任务的排行，不加锁。
+ * 包装后的任务实现 TaskWrapper，被包装的线程池按 DISCARD_OLDEST / SHED 丢弃任务时仍然能取消 submit() 的 Future，
+ * 按 {@link Prioritized} 的优先级减载；submit() 提交的任务实现了 Prioritized 时，优先级由 Future 带上。
+ * <p>
+ * shutdown 等生命周期方法直接作用在被包装的线程池上，包装共享的线程池时不要调用。
+ */
+public class TracingExecutorService extends AbstractExecutorService
+{
+    private final String name;
+    private final ExecutorService delegate;
+    private final int slowestCount;
+
+    //需要传递到执行线程的 ThreadLocal，写时复制
+    private volatile ThreadLocal<?>[] propagated = {TraceContext.threadLocal()};
+
+    private final ConcurrentHashMap<Class<?>, TaskStats> stats = new ConcurrentHashMap<>();
+
+    //最慢的任务，小顶堆，堆顶是排行中最快的一个
+    private final PriorityQueue<SlowTask> slowest =
+            new PriorityQueue<>(Comparator.comparingLong(SlowTask::getExecNanos));
+    //排行已满时的入围门槛
+    private volatile long slowestThreshold = 0;
+
+    /**
+     * @param name         名称，用于输出
+     * @param delegate     被包装的线程池
+     * @param slowestCount 保留最慢的多少个任务
+     */
+    public TracingExecutorService(String name, ExecutorService delegate, int slowestCount)
+    {
+        this.name = name;
+        this.delegate = delegate;
+        this.slowestCount = slowestCount;
+    }
+
+    /**
+     * 登记需要从提交线程传递到执行线程的 ThreadLocal
+     */
+    public synchronized TracingExecutorService propagate(ThreadLocal<?> threadLocal)
+    {
+        ThreadLocal<?>[] updated = Arrays.copyOf(propagated, propagated.length + 1);
+        updated[updated.length - 1] = threadLocal;
+        propagated = updated;
+        return this;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public void execute(Runnable command)
+    {
+        if (command == null)
+        {
+            throw new NullPointerException();
+        }
+        Class<?> taskClass = command instanceof TaskFuture ? ((TaskFuture<?>) command).taskClass : command.getClass();
+        delegate.execute(new TracedRunnable(command, statsOf(taskClass), capture()));
+    }
+
+    /**
+     * submit() 提交的任务会被包装为 FutureTask，这里记下原始任务的类
+     */
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value)
+    {
+        return new TaskFuture<>(runnable.getClass(), priorityOf(runnable), Executors.callable(runnable, value));
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable)
+    {
+        return new TaskFuture<>(callable.getClass(), priorityOf(callable), callable);
+    }
+
+    private static int priorityOf(Object task)
+    {
+        return task instanceof Prioritized ? ((Prioritized) task).getPriority() : Prioritized.NORMAL;
+    }
+
+    private TaskStats statsOf(Class<?> taskClass)
+    {
+        TaskStats s = stats.get(taskClass);
+        return s != null ? s : stats.computeIfAbsent(taskClass, TaskStats::new);
+    }
+
+    private Object[] capture()
+    {
+        ThreadLocal<?>[] locals = propagated;
+        Object[] values = new Object[locals.length];
+        for (int i = 0; i < locals.length; i++)
+        {
+            values[i] = locals[i].get();
+        }
+        return values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void restore(ThreadLocal<?>[] locals, Object[] values)
+    {
+        for (int i = 0; i < locals.length; i++)
+        {
+            if (values[i] == null)
+            {
+                locals[i].remove();
+            } else
+            {
+                ((ThreadLocal<Object>) locals[i]).set(values[i]);
+            }
+        }
+    }
+
+    private void recordSlow(TaskStats s, String traceId, long queueNanos, long execNanos)
+    {
+        if (slowestCount <= 0 || execNanos <= slowestThreshold)
+        {
+            return;
+        }
+        synchronized (slowest)
+        {
+            slowest.add(new SlowTask(s.name, traceId, queueNanos, execNanos, System.currentTimeMillis()));
+            if (slowest.size() > slowestCount)
+            {
+                slowest.poll();
+            }
+            if (slowest.size() == slowestCount)
+            {
+                slowestThreshold = slowest.peek().execNanos;
+            }
+        }
+    }
+
+    /**
+     * 每个任务类的排队时间与执行时间分布，按任务类的全名排序；
+     * 不同包中同名的任务类是不同的记录，输出的名称相同
+     */
+    public Map<String, TaskStats> getTaskStats()
+    {
+        Map<String, TaskStats> result = new TreeMap<>();
+        for (TaskStats s : stats.values())
+        {
+            result.put(s.className, s);
+        }
+        return result;
+    }
+
+    /**
+     * 执行最慢的任务，按执行时间从慢到快排列
+     */
+    public List<SlowTask> getSlowestTasks()
+    {
+        List<SlowTask> result;
+        synchronized (slowest)
+        {
+            result = new ArrayList<>(slowest);
+        }
+        result.sort(Comparator.comparingLong(SlowTask::getExecNanos).reversed());
+        return result;
+    }
+
+    /**
+     * 清空统计与最慢任务的排行
+     */
+    public void reset()
+    {
+        stats.clear();
+        synchronized (slowest)
+        {
+            slowest.clear();
+            slowestThreshold = 0;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder(name);
+        for (TaskStats s : getTaskStats().values())
+        {
+            sb.append("\n").append(s);
+        }
+        sb.append("\nslowest:");
+        for (SlowTask t : getSlowestTasks())
+        {
+            sb.append("\n").append(t);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void shutdown()
+    {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        List<Runnable> pending = delegate.shutdownNow();
+        List<Runnable> tasks = new ArrayList<>(pending.size());
+        for (Runnable r : pending)
+        {
+            tasks.add(r instanceof TracedRunnable ? ((TracedRunnable) r).task : r);
+        }
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown()
+    {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated()
+    {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * 单个任务类的统计，单位纳秒
+     */
+    public static class TaskStats
+    {
+        private final String name;
+        //去掉 lambda 后缀的类全名，区分不同包中的同名类
+        private final String className;
+        final LatencyHistogram queueWait = new LatencyHistogram();
+        final LatencyHistogram execTime = new LatencyHistogram();
+        final LongAdder failed = new LongAdder();
+
+        TaskStats(Class<?> taskClass)
+        {
+            this.className = className(taskClass);
+            this.name = className.substring(className.lastIndexOf('.') + 1);
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getClassName()
+        {
+            return className;
+        }
+
+        public LatencyHistogram.Snapshot getQueueWait()
+        {
+            return queueWait.snapshot();
+        }
+
+        public LatencyHistogram.Snapshot getExecTime()
+        {
+            return execTime.snapshot();
+        }
+
+        public long getFailed()
+        {
+            return failed.sum();
+        }
+
+        @Override
+        public String toString()
+        {
+            return name + " queueWait(ns)[" + getQueueWait() + "] execTime(ns)[" + getExecTime() + "] failed=" + getFailed();
+        }
+    }
+
+    /**
+     * 去掉 lambda 类名中每次运行都不同的后缀
+     */
+    static String className(Class<?> taskClass)
+    {
+        String name = taskClass.getName();
+        int slash = name.indexOf('/');
+        return slash > 0 ? name.substring(0, slash) : name;
+    }
+
+    /**
+     * 最慢任务排行中的一条记录
+     */
+    public static class SlowTask
+    {
+        private final String taskName;
+        private final String traceId;
+        private final long queueNanos;
+        private final long execNanos;
+        private final long finishedMillis;
+
+        SlowTask(String taskName, String traceId, long queueNanos, long execNanos, long finishedMillis)
+        {
+            this.taskName = taskName;
+            this.traceId = traceId;
+            this.queueNanos = queueNanos;
+            this.execNanos = execNanos;
+            this.finishedMillis = finishedMillis;
+        }
+
+        public String getTaskName()
+        {
+            return taskName;
+        }
+
+        public String getTraceId()
+        {
+            return traceId;
+        }
+
+        public long getQueueNanos()
+        {
+            return queueNanos;
+        }
+
+        public long getExecNanos()
+        {
+            return execNanos;
+        }
+
+        public long getFinishedMillis()
+        {
+            return finishedMillis;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s trace=%s queue=%.3fms exec=%.3fms", taskName, traceId, queueNanos / 1e6, execNanos / 1e6);
+        }
+    }
+
+    /**
+     * 记住原始任务类与优先级的 FutureTask
+     */
+    static final class TaskFuture<T> extends FutureTask<T> implements Prioritized
+    {
+        final Class<?> taskClass;
+        private final int priority;
+
+        TaskFuture(Class<?> taskClass, int priority, Callable<T> callable)
+        {
+            super(callable);
+            this.taskClass = taskClass;
+            this.priority = priority;
+        }
+
+        @Override
+        public int getPriority()
+        {
+            return priority;
+        }
+    }
+
+    /**
+     * 带着提交时间与提交线程上下文的任务包装
+     */
+    final class TracedRunnable implements Runnable, TaskWrapper
+    {
+        final Runnable task;
+        private final TaskStats stats;
+        private final Object[] context;
+        private final long submitNanos = System.nanoTime();
+
+        TracedRunnable(Runnable task, TaskStats stats, Object[] context)
+        {
+            this.task = task;
+            this.stats = stats;
+            this.context = context;
+        }
+
+        @Override
+        public void run()
+        {
+            //登记的 ThreadLocal 可能在提交之后增加，按提交时的数量恢复
+            ThreadLocal<?>[] locals = Arrays.copyOf(propagated, context.length);
+            Object[] previous = new Object[locals.length];
+            for (int i = 0; i < locals.length; i++)
+            {
+                previous[i] = locals[i].get();
+            }
+            restore(locals, context);
+            long start = System.nanoTime();
+            long queueNanos = start - submitNanos;
+            stats.queueWait.record(queueNanos);
+            try
+            {
+                task.run();
+                if (task instanceof FutureTask && isFailed((FutureTask<?>) task))
+                {
+                    stats.failed.increment();
+                }
+            } catch (RuntimeException | Error e)
+            {
+                stats.failed.increment();
+                throw e;
+            } finally
+            {
+                long execNanos = System.nanoTime() - start;
+                stats.execTime.record(execNanos);
+                recordSlow(stats, (String) context[0], queueNanos, execNanos);
+                restore(locals, previous);
+            }
+        }
+
+        @Override
+        public Runnable unwrap()
+        {
+            return task;
+        }
+    }
+
+    private static boolean isFailed(FutureTask<?> future)
+    {
+        if (!future.isDone() || future.isCancelled())
+        {
+            return false;
+        }
+        try
+        {
+            future.get();
+            return false;
+        } catch (Exception e)
+        {
+            return true;
+        }
+    }
+}
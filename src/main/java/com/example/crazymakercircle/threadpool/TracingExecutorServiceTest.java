@@ -0,0 +1,167 @@
+package com.example.crazymakercircle.threadpool;
+
+import com.example.crazymakercircle.util.Print;
+import com.example.crazymakercircle.util.ThreadUtil;
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.example.crazymakercircle.util.ThreadUtil.sleepMilliSeconds;
+
+/**
+ * 跟踪装饰器：按任务类统计耗时、跟踪号的传递、最慢任务的排行
+ */
+public class TracingExecutorServiceTest
+{
+    //模拟的业务任务，按任务类统计
+    static class OrderTask implements Runnable
+    {
+        private final int cost;
+
+        OrderTask(int cost)
+        {
+            this.cost = cost;
+        }
+
+        @Override
+        public void run()
+        {
+            sleepMilliSeconds(cost);
+        }
+    }
+
+    static class ReportTask implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            sleepMilliSeconds(30);
+        }
+    }
+
+    @org.junit.Test
+    public void testTaskStats() throws Exception
+    {
+        //包装 ThreadUtil 的 IO 线程池，共享的线程池不关闭
+        TracingExecutorService pool = new TracingExecutorService("io", ThreadUtil.getIoIntenseTargetThreadPool(), 3);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+        {
+            TraceContext.newTraceId();
+            futures.add(pool.submit(new OrderTask(i % 5 == 0 ? 50 : 5)));
+            if (i % 4 == 0)
+            {
+                futures.add(pool.submit(new ReportTask()));
+            }
+        }
+        futures.add(pool.submit(() -> 42));
+        for (Future<?> future : futures)
+        {
+            future.get();
+        }
+        TraceContext.clear();
+        Print.tcfo(pool);
+    }
+
+    @org.junit.Test
+    public void testTracePropagation() throws InterruptedException
+    {
+        ThreadLocal<String> user = new ThreadLocal<>();
+        TracingExecutorService pool = new TracingExecutorService("single",
+                ThreadUtil.getSeqOrScheduledExecutorService(), 0).propagate(user);
+        //每个任务在执行线程中读到的 trace 与 user，最后一个任务在提交线程清空之后提交
+        AtomicReferenceArray<String> seenTrace = new AtomicReferenceArray<>(3);
+        AtomicReferenceArray<String> seenUser = new AtomicReferenceArray<>(3);
+        String[] traceIds = new String[2];
+        CountDownLatch latch = new CountDownLatch(3);
+        for (int i = 0; i < 2; i++)
+        {
+            int n = i;
+            traceIds[i] = TraceContext.newTraceId();
+            user.set("user-" + i);
+            Print.tcfo("提交任务，trace=" + traceIds[i] + "，user=" + user.get());
+            pool.execute(() ->
+            {
+                //执行线程中读到提交线程的值
+                seenTrace.set(n, TraceContext.getTraceId());
+                seenUser.set(n, user.get());
+                Print.tcfo("执行任务，trace=" + seenTrace.get(n) + "，user=" + seenUser.get(n));
+                latch.countDown();
+            });
+        }
+        //提交线程没有值时，执行线程中也没有，前面任务的值不会残留
+        TraceContext.clear();
+        user.remove();
+        pool.execute(() ->
+        {
+            seenTrace.set(2, TraceContext.getTraceId());
+            seenUser.set(2, user.get());
+            Print.tcfo("任务之后，trace=" + seenTrace.get(2) + "，user=" + seenUser.get(2));
+            latch.countDown();
+        });
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Print.flush();
+        for (int i = 0; i < 2; i++)
+        {
+            Assert.assertEquals(traceIds[i], seenTrace.get(i));
+            Assert.assertEquals("user-" + i, seenUser.get(i));
+        }
+        Assert.assertNull(seenTrace.get(2));
+        Assert.assertNull(seenUser.get(2));
+    }
+
+    @org.junit.Test
+    public void testOverloadThroughWrapper() throws Exception
+    {
+        //被包装的线程池按 DISCARD_OLDEST 丢弃任务时，submit() 的 Future 被取消，get() 不会一直等待
+        InstrumentedThreadPoolExecutor discardPool = newPool(OverloadPolicy.DISCARD_OLDEST, 2);
+        TracingExecutorService pool = new TracingExecutorService("discard", discardPool, 0);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            futures.add(pool.submit(new OrderTask(20)));
+        }
+        int cancelled = 0;
+        for (Future<?> future : futures)
+        {
+            if (future.isCancelled())
+            {
+                cancelled++;
+            } else
+            {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        }
+        Print.tcfo("DISCARD_OLDEST 取消的 Future：" + cancelled);
+        Assert.assertTrue(cancelled > 0);
+        ThreadUtil.shutdownThreadPoolGracefully(discardPool);
+
+        //按 SHED 减载时，包装之后仍然按任务的优先级丢弃：队列容量 4，放得下所有高优先级的任务
+        InstrumentedThreadPoolExecutor shedPool = newPool(OverloadPolicy.SHED, 4);
+        pool = new TracingExecutorService("shed", shedPool, 0);
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger highDone = new AtomicInteger();
+        for (int i = 0; i < 20; i++)
+        {
+            boolean high = i % 5 == 0;
+            pool.execute(new OverloadPolicyTest.PriorityTask(high ? Prioritized.HIGH : Prioritized.LOW, high ? highDone : done));
+        }
+        ThreadUtil.shutdownThreadPoolGracefully(shedPool);
+        Print.tcfo("SHED 完成：低优先级 " + done.get() + "，高优先级 " + highDone.get() + "/4");
+        Assert.assertEquals(4, highDone.get());
+        Assert.assertTrue(done.get() < 16);
+        Print.flush();
+    }
+
+    private static InstrumentedThreadPoolExecutor newPool(OverloadPolicy policy, int queueCapacity)
+    {
+        return new InstrumentedThreadPoolExecutor(policy.name(), 1, 1, 0, TimeUnit.SECONDS,
+                policy.newQueue(queueCapacity), new ThreadUtil.CustomThreadFactory("overload"), policy.newHandler(0));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.crazymakercircle.threadpool;
+
+import com.example.crazymakercircle.util.Print;
+import com.example.crazymakercircle.util.ThreadUtil;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 10 万个阻塞型任务：平台线程池 vs 虚拟线程
+ * 虚拟线程的用例需要在 JDK 21 及以上运行
+ */
+public class VirtualThreadTest
+{
+    // 并发任务数
+    final int TASK_AMOUNT = 100000;
+    // 每个任务阻塞的毫秒数，模拟一次 IO 等待
+    final int BLOCK_MILLIS = 10;
+
+    @org.junit.Test
+    public void testPlatformThreads() throws InterruptedException
+    {
+        //与混合型线程池相同的线程数，队列不设上限以便一次性提交全部任务
+        int[] poolSizes = {128, 1000};
+        for (int poolSize : poolSizes)
+        {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    poolSize,
+                    poolSize,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new ThreadUtil.CustomThreadFactory("bench"));
+            runBlockingTasks("平台线程 x " + poolSize, pool);
+            ThreadUtil.shutdownThreadPoolGracefully(pool);
+        }
+    }
+
+    @org.junit.Test
+    public void testVirtualThreads() throws InterruptedException
+    {
+        if (!ThreadUtil.isVirtualThreadSupported())
+        {
+            Print.tcfo("当前 JDK 不支持虚拟线程，跳过：" + System.getProperty("java.version"));
+            return;
+        }
+        ExecutorService executor = ThreadUtil.newVirtualThreadPerTaskExecutor("bench");
+        runBlockingTasks("虚拟线程", executor);
+        ThreadUtil.shutdownThreadPoolGracefully(executor);
+    }
+
+    private void runBlockingTasks(String name, ExecutorService executor) throws InterruptedException
+    {
+        CountDownLatch latch = new CountDownLatch(TASK_AMOUNT);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < TASK_AMOUNT; i++)
+        {
+            executor.execute(() ->
+            {
+                try
+                {
+                    Thread.sleep(BLOCK_MILLIS);
+                } catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                latch.countDown();
+            });
+        }
+        latch.await();
+        float time = (System.currentTimeMillis() - start) / 1000F;
+        Print.tcfo(name + " 完成 " + TASK_AMOUNT + " 个阻塞任务的时长(秒)：" + time);
+    }
+}
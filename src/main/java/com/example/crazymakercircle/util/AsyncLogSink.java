@@ -0,0 +1,229 @@
+package com.example.crazymakercircle.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步的批量日志输出
+ * <p>
+ * 多个生产者线程通过 CAS 在环形缓冲区中认领槽位并写入一行，一条后台线程按顺序取出，
+ * 攒成一批后只调用一次 write 输出。同一个线程的多行占用递增的槽位，输出顺序与调用顺序一致。
+ * 生产者不加锁、不提交任务，只有一次 CAS 和一次数组写入；消费线程空闲时才需要唤醒。
+ * <p>
+ * 缓冲区满时按 {@link Overflow} 处理：BLOCK 等待消费线程腾出空间，DROP 丢弃并计数。
+ */
+public class AsyncLogSink
+{
+    /**
+     * 缓冲区满时的处理方式
+     */
+    public enum Overflow
+    {
+        //等待消费线程腾出空间，不丢日志
+        BLOCK,
+        //丢弃该行，计入 getDroppedCount()
+        DROP
+    }
+
+    //每批最多输出的行数
+    private static final int MAX_BATCH_LINES = 1024;
+    //消费线程空闲时的最长休眠时间
+    private static final long IDLE_PARK_NANOS = 10_000_000L;
+
+    private final AtomicReferenceArray<String> ring;
+    private final int capacity;
+    private final int mask;
+    private final Overflow overflow;
+    private final OutputStream out;
+
+    //下一个待认领的序号，生产者 CAS 递增
+    private final AtomicLong tail = new AtomicLong();
+    //下一个待消费的序号，只由消费线程写
+    private volatile long head;
+    //已经写出的序号，flush() 据此判断
+    private volatile long written;
+
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean sleeping;
+    private volatile boolean closed;
+    private final Thread consumer;
+
+    //消费线程复用的批量缓冲
+    private final StringBuilder batch = new StringBuilder(64 * 1024);
+
+    /**
+     * @param name     消费线程名
+     * @param capacity 缓冲区的行数，向上取整为 2 的幂
+     * @param overflow 缓冲区满时的处理方式
+     * @param out      输出目标
+     */
+    public AsyncLogSink(String name, int capacity, Overflow overflow, OutputStream out)
+    {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.ring = new AtomicReferenceArray<>(this.capacity);
+        this.overflow = overflow;
+        this.out = out;
+        consumer = new Thread(this::drainLoop, name);
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * 写入一行，不需要带换行符
+     *
+     * @return 缓冲区满且策略为 DROP 时返回 false
+     */
+    public boolean offer(String line)
+    {
+        if (closed)
+        {
+            return false;
+        }
+        long t;
+        int spins = 0;
+        while (true)
+        {
+            t = tail.get();
+            if (t - head < capacity)
+            {
+                if (tail.compareAndSet(t, t + 1))
+                {
+                    break;
+                }
+                continue;
+            }
+            if (overflow == Overflow.DROP)
+            {
+                dropped.increment();
+                return false;
+            }
+            //缓冲区满，唤醒消费线程后等待
+            LockSupport.unpark(consumer);
+            if (++spins > 100)
+            {
+                LockSupport.parkNanos(10_000L);
+            } else
+            {
+                Thread.yield();
+            }
+        }
+        ring.lazySet((int) t & mask, line);
+        if (sleeping)
+        {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * 等待调用之前写入的行全部输出
+     */
+    public void flush()
+    {
+        long target = tail.get();
+        while (written < target && consumer.isAlive())
+        {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(100_000L);
+        }
+    }
+
+    /**
+     * 输出剩余的行后停止消费线程，之后的 offer() 返回 false
+     * <p>
+     * 等待消费线程退出后才返回：在关闭前通过检查的 offer() 写入的行也已经输出，
+     * 调用方随后关闭输出目标时，不会再有写入
+     */
+    public void close()
+    {
+        closed = true;
+        LockSupport.unpark(consumer);
+        try
+        {
+            consumer.join();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getDroppedCount()
+    {
+        return dropped.sum();
+    }
+
+    private void drainLoop()
+    {
+        while (true)
+        {
+            int lines = drainBatch();
+            if (lines > 0)
+            {
+                writeBatch();
+                continue;
+            }
+            if (closed && head == tail.get())
+            {
+                break;
+            }
+            if (head != tail.get())
+            {
+                //槽位已被认领但还没写入，稍等
+                Thread.onSpinWait();
+                continue;
+            }
+            sleeping = true;
+            if (head == tail.get())
+            {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            sleeping = false;
+        }
+    }
+
+    private int drainBatch()
+    {
+        long h = head;
+        long t = tail.get();
+        int lines = 0;
+        while (h < t && lines < MAX_BATCH_LINES)
+        {
+            int index = (int) h & mask;
+            String line = ring.get(index);
+            if (line == null)
+            {
+                break;
+            }
+            ring.lazySet(index, null);
+            batch.append(line).append('\n');
+            h++;
+            lines++;
+        }
+        //释放槽位
+        head = h;
+        return lines;
+    }
+
+    private void writeBatch()
+    {
+        try
+        {
+            byte[] bytes = batch.toString().getBytes(StandardCharsets.UTF_8);
+            out.write(bytes, 0, bytes.length);
+            out.flush();
+        } catch (IOException e)
+        {
+            System.err.println("日志输出失败：" + e.getMessage());
+        } finally
+        {
+            batch.setLength(0);
+            written = head;
+        }
+    }
+}
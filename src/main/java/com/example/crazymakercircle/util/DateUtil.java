@@ -6,6 +6,11 @@ import java.util.Date;
 
 public class DateUtil
 {
+    //按秒缓存格式化结果，同一秒内的调用不再创建 SimpleDateFormat，也不重新格式化
+    public static final TimestampFormatter DAY_FORMATTER = TimestampFormatter.of("yyyy-MM-dd");
+    //HH表示用24小时制，如18；hh表示用12小时制
+    public static final TimestampFormatter NOW_FORMATTER = TimestampFormatter.of("yyyy-MM-dd HH:mm:ss");
+    public static final TimestampFormatter TIME_FORMATTER = TimestampFormatter.of("HH:mm:ss");
 
     /**
      * 取得今天的日期
@@ -14,10 +19,7 @@ public class DateUtil
      */
     public static String getToday()
     {
-
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-
-        return sdf.format(new Date().getTime());
+        return DAY_FORMATTER.format();
     }
 
     /**
@@ -37,27 +39,16 @@ public class DateUtil
 
     public static String getNow()
     {
-        //HH表示用24小时制，如18；hh表示用12小时制
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-
-        return sdf.format(new Date().getTime());
-
+        return NOW_FORMATTER.format();
     }
+
     public static String getNowTime()
     {
-        //HH表示用24小时制，如18；hh表示用12小时制
-        SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss");
-
-        return sdf.format(new Date().getTime());
-
+        return TIME_FORMATTER.format();
     }
 
     public static String getTime()
     {
-        //HH表示用24小时制，如18；hh表示用12小时制
-        SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss");
-
-        return sdf.format(new Date().getTime());
-
+        return TIME_FORMATTER.format();
     }
 }
@@ -6,71 +6,76 @@
 package com.example.crazymakercircle.util;
 
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.Writer;
+import java.util.concurrent.Callable;
 
+/**
+ * 写入 /AOP/ 目录下按日期滚动的日志文件
+ * <p>
+ * 调用线程只把一行放入 {@link AsyncLogSink}，由后台线程批量写入 {@link RollingFileOutputStream}，
+ * 文件句柄始终打开，每批日志只有一次 write 系统调用。
+ */
 public class FileLogger
 {
+    /**
+     * 单个日志文件的最大字节数，默认 64MB
+     */
+    public static final String MAX_FILE_BYTES = "file.logger.max.bytes";
+    /**
+     * 是否用内存映射追加，默认 false
+     */
+    public static final String MEMORY_MAPPED = "file.logger.mmap";
+    /**
+     * 调用 force() 落盘的最小间隔（毫秒），默认 -1 不主动落盘
+     */
+    public static final String FORCE_INTERVAL = "file.logger.force.interval";
+    /**
+     * 异步写入的缓冲区行数，默认 8192
+     */
+    public static final String SINK_CAPACITY = "file.logger.sink.capacity";
 
-    private static File logFile;
+    private static final AsyncLogSink SINK;
 
     static
     {
-        try
-        {
-            String logDir = IOUtil.builderResourcePath("/AOP/");
-            File dir = new File(logDir);
-            if (!dir.exists())
-            {
-                dir.mkdir();
-            }
-            String filePath = logDir + DateUtil.getToday() + ".txt";
+        String logDir = IOUtil.builderResourcePath("/AOP/");
+        RollingFileOutputStream out = new RollingFileOutputStream(new File(logDir))
+                .maxFileBytes(Long.getLong(MAX_FILE_BYTES, 64L * 1024 * 1024))
+                .memoryMapped(Boolean.getBoolean(MEMORY_MAPPED), 8 * 1024 * 1024)
+                .forceIntervalMillis(Long.getLong(FORCE_INTERVAL, -1L));
+        SINK = new AsyncLogSink("file-logger", Integer.getInteger(SINK_CAPACITY, 8192),
+                AsyncLogSink.Overflow.BLOCK, out);
 
-            logFile = new File(filePath);
-            if (!logFile.exists())
+        //JVM关闭前写出剩余的日志，并关闭文件
+        Runtime.getRuntime().addShutdownHook(new ShutdownHookThread("文件日志", new Callable<Void>()
+        {
+            @Override
+            public Void call() throws Exception
             {
-
-                logFile.createNewFile();
+                SINK.close();
+                out.close();
+                return null;
             }
-
-        } catch (IOException e)
-        {
-            e.printStackTrace();
-        }
+        }));
     }
 
 
     /**
-     * 带着方法名输出，方法名称放在前面
+     * 带着时间输出到日志文件
      *
      * @param s 待输出的字符串形参
      */
     public static void info(Object s)
     {
-        Writer fileWriter = null;
-        BufferedWriter bufferedWriter = null;
-        try
-        {
-            fileWriter = new FileWriter(logFile, true);
-            bufferedWriter = new BufferedWriter(fileWriter);
-            bufferedWriter.append(DateUtil.getNow());
-            bufferedWriter.append(" ");
-            bufferedWriter.append(s.toString());
-            bufferedWriter.append("\r");
-            bufferedWriter.flush();
-
-        } catch (IOException e)
-        {
-            e.printStackTrace();
-
-        } finally
-        {
-            IOUtil.closeQuietly(bufferedWriter);
+        SINK.offer(DateUtil.getNow() + " " + s);
+    }
 
-        }
+    /**
+     * 等待之前的日志全部写入文件
+     */
+    public static void flush()
+    {
+        SINK.flush();
     }
 
 }
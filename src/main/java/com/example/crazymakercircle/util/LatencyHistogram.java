@@ -0,0 +1,183 @@
+package com.example.crazymakercircle.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的延迟直方图，按 HdrHistogram 的思路分桶：
+ * 每个 2 的幂区间再等分为 2^SUB_BITS 个子桶，相对误差不超过 1/2^SUB_BITS（12.5%），
+ * 覆盖 0 ~ Long.MAX_VALUE 只需要 488 个桶。
+ * <p>
+ * record() 只有一次数组下标计算和一次原子自增，可以在任务执行的热路径上调用；
+ * 读取时复制一份桶计数再计算分位数，读写之间不加锁，读到的是近似一致的快照。
+ */
+public class LatencyHistogram
+{
+    //每个 2 的幂区间细分的子桶位数
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一个值，负数按 0 记录
+     */
+    public void record(long value)
+    {
+        if (value < 0)
+        {
+            value = 0;
+        }
+        counts.getAndIncrement(indexOf(value));
+        sum.add(value);
+        if (value > max.get())
+        {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * 清空所有记录，与并发的 record() 之间不保证原子性
+     */
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.set(0);
+    }
+
+    public Snapshot snapshot()
+    {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, sum.sum(), max.get());
+    }
+
+    static int indexOf(long value)
+    {
+        if (value < SUB_COUNT)
+        {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * 桶中的最大值
+     */
+    static long upperBoundOf(int index)
+    {
+        if (index < SUB_COUNT)
+        {
+            return index;
+        }
+        int shift = index / SUB_COUNT - 1;
+        long lower = (long) (SUB_COUNT + index % SUB_COUNT) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * 直方图的只读快照，单位与 record() 的值相同
+     * 通过 getter 暴露，可以直接作为 MXBean 的属性
+     */
+    public static class Snapshot
+    {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max)
+        {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * 分位数，返回所在桶的上界，不超过记录到的最大值
+         *
+         * @param quantile 0~1
+         */
+        public long percentile(double quantile)
+        {
+            if (count == 0)
+            {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++)
+            {
+                seen += counts[i];
+                if (seen >= target)
+                {
+                    return Math.min(upperBoundOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+
+        public double getMean()
+        {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        public long getP50()
+        {
+            return percentile(0.5);
+        }
+
+        public long getP90()
+        {
+            return percentile(0.9);
+        }
+
+        public long getP99()
+        {
+            return percentile(0.99);
+        }
+
+        public long getP999()
+        {
+            return percentile(0.999);
+        }
+
+        public long getMax()
+        {
+            return max;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "count=" + count
+                    + ", mean=" + String.format("%.1f", getMean())
+                    + ", p50=" + getP50()
+                    + ", p90=" + getP90()
+                    + ", p99=" + getP99()
+                    + ", p999=" + getP999()
+                    + ", max=" + max;
+        }
+    }
+}
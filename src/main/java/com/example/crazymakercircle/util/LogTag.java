@@ -0,0 +1,55 @@
+package com.example.crazymakercircle.util;
+
+/**
+ * 预先计算好的调用方标签，输出格式与 Print.fo / cfo / tcfo 自动解析的 "类名.方法名" 相同
+ * <p>
+ * 不带标签的输出每次都要遍历调用栈查找调用方（ReflectionUtil 只缓存了拼接好的名称，不能省去遍历），
+ * 热路径上的日志推荐把标签放在静态常量中，输出时不再查找调用栈：
+ * <pre>
+ * private static final LogTag TAG = LogTag.of(OrderService.class, "submit");
+ * ...
+ * Print.tcfo(TAG, "order submitted");
+ * </pre>
+ */
+public final class LogTag
+{
+    private final String method;
+    private final String name;
+
+    private LogTag(String simpleClassName, String method)
+    {
+        this.method = method;
+        this.name = simpleClassName + "." + method;
+    }
+
+    /**
+     * @param type   调用方的类，输出时不含包名
+     * @param method 调用方的方法名
+     */
+    public static LogTag of(Class<?> type, String method)
+    {
+        return new LogTag(ReflectionUtil.simpleClassName(type.getName()), method);
+    }
+
+    /**
+     * 方法名，对应 ReflectionUtil.getCallMethod()
+     */
+    public String getMethod()
+    {
+        return method;
+    }
+
+    /**
+     * 类名.方法名，对应 ReflectionUtil.getNakeCallClassMethod()
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
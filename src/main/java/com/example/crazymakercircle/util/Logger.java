@@ -10,6 +10,9 @@ import java.util.Scanner;
 
 public class Logger
 {
+    //debug / info 输出时的调用方固定为自身，预先计算，不再查找第二次调用栈
+    private static final LogTag DEBUG_TAG = LogTag.of(Logger.class, "debug");
+    private static final LogTag INFO_TAG = LogTag.of(Logger.class, "info");
 
     /**
      * 带着方法名输出，方法名称放在前面
@@ -28,7 +31,7 @@ public class Logger
         }
 
         String out = String.format("%20s |>  %s ", ReflectionUtil.getCallMethod(), content);
-        Print.tcfo(out);
+        Print.tcfo(DEBUG_TAG, out);
     }
 
 
@@ -50,7 +53,7 @@ public class Logger
         String cft = "[" + Thread.currentThread().getName() + "|" + ReflectionUtil.getNakeCallClassMethod() + "]";
 
         String out = String.format("%20s |>  %s ", cft, content);
-        Print.tcfo(out);
+        Print.tcfo(INFO_TAG, out);
 
     }
 
@@ -72,10 +75,37 @@ public class Logger
         String cft = "[" + Thread.currentThread().getName() + "|" + ReflectionUtil.getNakeCallClassMethod() + "]";
 
         String out = String.format("%20s |>  %s ", cft, content.toString());
-        Print.tcfo(out);
+        Print.tcfo(INFO_TAG, out);
 
     }
 
+    /**
+     * 带着预先计算好的方法名输出，不查找调用栈
+     *
+     * @param tag 调用方标签，一般放在静态常量中
+     * @param s   待输出的字符串形参
+     */
+    public static void debug(LogTag tag, Object s)
+    {
+        String content = null != s ? s.toString().trim() : "";
+        String out = String.format("%20s |>  %s ", tag.getMethod(), content);
+        Print.tcfo(DEBUG_TAG, out);
+    }
+
+    /**
+     * 带着线程名+预先计算好的类名+方法名输出，不查找调用栈
+     *
+     * @param tag 调用方标签，一般放在静态常量中
+     * @param s   待输出的字符串形参
+     */
+    public static void info(LogTag tag, Object s)
+    {
+        String content = null != s ? s.toString().trim() : "";
+        String cft = "[" + Thread.currentThread().getName() + "|" + tag.getName() + "]";
+        String out = String.format("%20s |>  %s ", cft, content);
+        Print.tcfo(INFO_TAG, out);
+    }
+
     /**
      * 带着线程名+类名+方法名称输出
      *
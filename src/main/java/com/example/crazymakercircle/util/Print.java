@@ -5,10 +5,72 @@
 package com.example.crazymakercircle.util;
 
 
+import java.io.OutputStream;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
 
 public class Print
 {
+    /**
+     * 异步输出的缓冲区行数，默认 8192
+     */
+    public static final String SINK_CAPACITY = "print.sink.capacity";
+    /**
+     * 缓冲区满时的处理方式：block / drop，默认 block
+     */
+    public static final String SINK_OVERFLOW = "print.sink.overflow";
+
+    //输出到当前的 System.out，System.setOut() 之后同样生效
+    private static final OutputStream STDOUT = new OutputStream()
+    {
+        @Override
+        public void write(int b)
+        {
+            System.out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+            System.out.write(b, off, len);
+        }
+
+        @Override
+        public void flush()
+        {
+            System.out.flush();
+        }
+    };
+
+    //所有异步输出共用一个批量输出的缓冲区，同一线程的输出保持顺序
+    private static final AsyncLogSink SINK = new AsyncLogSink(
+            "print-sink",
+            Integer.getInteger(SINK_CAPACITY, 8192),
+            AsyncLogSink.Overflow.valueOf(System.getProperty(SINK_OVERFLOW, "block").toUpperCase()),
+            STDOUT);
+
+    static
+    {
+        //JVM关闭前输出剩余的内容
+        Runtime.getRuntime().addShutdownHook(new ShutdownHookThread("异步输出", new Callable<Void>()
+        {
+            @Override
+            public Void call() throws Exception
+            {
+                SINK.close();
+                return null;
+            }
+        }));
+    }
+
+    /**
+     * 等待之前的异步输出全部完成
+     */
+    public static void flush()
+    {
+        SINK.flush();
+    }
+
     /**
      * 正式输出前，输出线程名
      * t-thread，c-content， o-output
@@ -19,14 +81,9 @@ public class Print
     {
         String cft = "[" + Thread.currentThread().getName() + "]" + "：" + s;
 
-        //提交线程池进行异步输出，使得输出过程不影响当前线程的执行
+        //放入异步输出的缓冲区，使得输出过程不影响当前线程的执行
         //异步输出的好处：不会造成输出乱序，也不会造成当前线程阻塞
-        ThreadUtil.seqExecute(() ->
-        {
-
-                System.out.println(cft);
-
-        });
+        SINK.offer(cft);
     }
 
     /**
@@ -65,13 +122,8 @@ public class Print
     {
         String cft = "[" + ReflectionUtil.getNakeCallClassMethod() + "]";
 
-        //提交线程池进行独立输出，使得输出不影响当前线程的执行
-        ThreadUtil.seqExecute(() ->
-        {
-
-            System.out.println(cft + "：" + s);
-
-        });
+        //异步输出，使得输出不影响当前线程的执行
+        SINK.offer(cft + "：" + s);
     }
 
     /**
@@ -79,34 +131,57 @@ public class Print
      *
      * @param s 待输出的字符串形参
      */
-    synchronized public static void cfo(Object s)
+    public static void cfo(Object s)
     {
         String cft = "[" + ReflectionUtil.getNakeCallClassMethod() + "]";
-        //提交线程池进行独立输出，使得输出不影响当前线程的执行
-        ThreadUtil.seqExecute(() ->
-        {
-            System.out.println(cft + "：" + s);
-        });
+        //异步输出，使得输出不影响当前线程的执行
+        SINK.offer(cft + "：" + s);
     }
 
     /**
      * 带着线程名+类名+方法名称输出
+     * 不带标签的 fo / cfo / tcfo 每次输出都要遍历调用栈查找调用方，热路径使用 LogTag 的重载
      *
      * @param s 待输出的字符串形参
      */
     public static void tcfo(Object s)
     {
         String cft = "[" + Thread.currentThread().getName() + "|" + ReflectionUtil.getNakeCallClassMethod() + "]";
-        System.out.println(cft + "：" + s);
+        //与其他方法共用异步输出，保持同一线程内的输出顺序
+        SINK.offer(cft + "：" + s);
+    }
+
+    /**
+     * 带着预先计算好的类名+方法名输出，不查找调用栈
+     *
+     * @param tag 调用方标签，一般放在静态常量中
+     * @param s   待输出的字符串形参
+     */
+    public static void fo(LogTag tag, Object s)
+    {
+        SINK.offer("[" + tag.getName() + "]" + "：" + s);
+    }
 
-//        //提交线程池进行独立输出，使得输出不影响当前线程的执行
-//        ThreadUtil.seqExecute(() ->
-//        {
-//
-//            System.out.println(cft + "：" + s);
-//
-//        });
+    /**
+     * 带着预先计算好的类名+方法名输出，不查找调用栈
+     *
+     * @param tag 调用方标签，一般放在静态常量中
+     * @param s   待输出的字符串形参
+     */
+    public static void cfo(LogTag tag, Object s)
+    {
+        SINK.offer("[" + tag.getName() + "]" + "：" + s);
+    }
 
+    /**
+     * 带着线程名+预先计算好的类名+方法名输出，不查找调用栈
+     *
+     * @param tag 调用方标签，一般放在静态常量中
+     * @param s   待输出的字符串形参
+     */
+    public static void tcfo(LogTag tag, Object s)
+    {
+        SINK.offer("[" + Thread.currentThread().getName() + "|" + tag.getName() + "]" + "：" + s);
     }
 
 
@@ -7,6 +7,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by 尼恩@疯狂创客圈
@@ -15,6 +16,61 @@ import java.util.Set;
  */
 public class ReflectionUtil
 {
+    /**
+     * 调用方的栈帧只需要向上找几层，StackWalker 按需逐批取帧，不会像 getStackTrace() 那样
+     * 为整个调用栈创建 StackTraceElement 数组
+     */
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+    //向上查找调用方时最多遍历的帧数
+    private static final int MAX_CALLER_DEPTH = 8;
+    //调用方所在的层数：[0] callerFrame，[1] getXxx，[2] 日志方法，[3] 调用日志方法的代码
+    private static final int CALLER_DEPTH = 3;
+
+    /**
+     * 按调用点缓存 "类名.方法名"，同一方法内的多个调用点输出相同，按类 + 方法名缓存即可；
+     * 类卸载时缓存随 ClassValue 一起回收。
+     * 缓存只省去截取类名与拼接字符串，取得栈帧本身仍然每次都要遍历调用栈，热路径应使用 LogTag
+     */
+    private static final ClassValue<ConcurrentHashMap<String, String>> CALL_SITE_NAMES =
+            new ClassValue<ConcurrentHashMap<String, String>>()
+            {
+                @Override
+                protected ConcurrentHashMap<String, String> computeValue(Class<?> type)
+                {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    private static StackWalker.StackFrame callerFrame()
+    {
+        return WALKER.walk(frames -> frames.limit(MAX_CALLER_DEPTH).skip(CALLER_DEPTH).findFirst()).orElse(null);
+    }
+
+    /**
+     * 类名 + 分隔符 + 方法名，类名不含包名
+     */
+    private static String callSiteName(StackWalker.StackFrame frame, char separator)
+    {
+        if (frame == null)
+        {
+            return "unknown";
+        }
+        ConcurrentHashMap<String, String> names = CALL_SITE_NAMES.get(frame.getDeclaringClass());
+        String method = frame.getMethodName();
+        String name = names.get(method);
+        if (name == null)
+        {
+            name = simpleClassName(frame.getClassName()) + "." + method;
+            names.putIfAbsent(method, name);
+        }
+        return separator == '.' ? name : name.replace('.', separator);
+    }
+
+    static String simpleClassName(String className)
+    {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
     /**
      * 获得调用方法的名称
      *
@@ -22,10 +78,9 @@ public class ReflectionUtil
      */
     public static String getCallMethod()
     {
-        StackTraceElement[] stack = Thread.currentThread().getStackTrace();
         // 获得调用方法名
-        String method = stack[3].getMethodName();
-        return method;
+        StackWalker.StackFrame frame = callerFrame();
+        return frame == null ? "unknown" : frame.getMethodName();
     }
 
     /**
@@ -35,11 +90,8 @@ public class ReflectionUtil
      */
     public static String getCallClassMethod()
     {
-        StackTraceElement stack[] = Thread.currentThread().getStackTrace();
         // 获得调用方法名
-        String[] className = stack[3].getClassName().split("\\.");
-        String fullName = className[className.length - 1] + ":" + stack[3].getMethodName();
-        return fullName;
+        return callSiteName(callerFrame(), ':');
     }
 
     /**
@@ -49,11 +101,8 @@ public class ReflectionUtil
      */
     public static String getNakeCallClassMethod()
     {
-        StackTraceElement stack[] = Thread.currentThread().getStackTrace();
         // 获得调用方法名
-        String[] className = stack[3].getClassName().split("\\.");
-        String fullName = className[className.length - 1] + "." + stack[3].getMethodName();
-        return fullName;
+        return callSiteName(callerFrame(), '.');
     }
 
     /**
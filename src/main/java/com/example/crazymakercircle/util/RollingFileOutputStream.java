@@ -0,0 +1,362 @@
+package com.example.crazymakercircle.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * 按日期与大小滚动的追加文件输出
+ * <p>
+ * 始终只打开一个 FileChannel，写入先复制到复用的直接内存缓冲区，
+ * flush() 时一次 write 系统调用写出缓冲区中的全部内容。
+ * 与 {@link AsyncLogSink} 配合使用时，消费线程每攒一批日志调用一次 write + flush，
+ * 多个线程的日志合并为一次系统调用（group commit）。
+ * <p>
+ * 文件名为 yyyy-MM-dd.txt，同一天超过 maxFileBytes 后依次为 yyyy-MM-dd.1.txt、yyyy-MM-dd.2.txt……
+ * 按大小滚动时在换行处切分，一行日志不会被拆到两个文件中。
+ * <p>
+ * 开启 memoryMapped 后，当前文件按 mapRegionBytes 分段映射到内存，追加只是内存复制，没有系统调用；
+ * 文件会预先扩展到映射区域的末尾，滚动与关闭时截断到实际写入的长度，
+ * 进程崩溃时文件末尾可能残留未截断的 0 字节。
+ * <p>
+ * 非线程安全，只应由一个线程（例如 AsyncLogSink 的消费线程）写入。
+ */
+public class RollingFileOutputStream extends OutputStream
+{
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final File dir;
+    private long maxFileBytes = 64L * 1024 * 1024;
+    private int bufferBytes = 64 * 1024;
+    private boolean memoryMapped = false;
+    private int mapRegionBytes = 8 * 1024 * 1024;
+    //调用 force() 落盘的最小间隔，小于 0 表示不主动落盘，由操作系统回写
+    private long forceIntervalMillis = -1;
+
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private MappedByteBuffer mapped;
+    //当前文件已写入（含缓冲区中未写出）的字节数
+    private long position;
+    //映射区域在文件中的起始位置
+    private long mappedStart;
+
+    //关闭之后拒绝写入，避免重新打开一个不会被关闭的文件
+    private volatile boolean closed;
+
+    private LocalDate day;
+    private int index;
+    private long nextDayMillis;
+    private long lastForceMillis;
+    private File current;
+
+    public RollingFileOutputStream(File dir)
+    {
+        this.dir = dir;
+    }
+
+    /**
+     * 单个文件的最大字节数，超过后滚动到同一天的下一个文件
+     */
+    public RollingFileOutputStream maxFileBytes(long maxFileBytes)
+    {
+        this.maxFileBytes = maxFileBytes;
+        return this;
+    }
+
+    /**
+     * 直接内存缓冲区的大小
+     */
+    public RollingFileOutputStream bufferBytes(int bufferBytes)
+    {
+        this.bufferBytes = bufferBytes;
+        return this;
+    }
+
+    /**
+     * 是否用内存映射追加，以及每次映射的区域大小
+     */
+    public RollingFileOutputStream memoryMapped(boolean memoryMapped, int mapRegionBytes)
+    {
+        this.memoryMapped = memoryMapped;
+        this.mapRegionBytes = mapRegionBytes;
+        return this;
+    }
+
+    /**
+     * flush() 之后至少间隔多久调用一次 force() 落盘，小于 0 表示不主动落盘
+     */
+    public RollingFileOutputStream forceIntervalMillis(long forceIntervalMillis)
+    {
+        this.forceIntervalMillis = forceIntervalMillis;
+        return this;
+    }
+
+    /**
+     * 当前写入的文件，还没有写入时为 null
+     */
+    public File getCurrentFile()
+    {
+        return current;
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("stream closed");
+        }
+        while (len > 0)
+        {
+            rollIfNeeded();
+            int n = len;
+            if (position + len > maxFileBytes)
+            {
+                //只写到不超过上限的最后一个换行，其余内容写入下一个文件
+                n = lastLineEnd(b, off, (int) Math.max(0, Math.min(len, maxFileBytes - position)));
+                if (n == 0)
+                {
+                    if (position > 0)
+                    {
+                        roll();
+                        continue;
+                    }
+                    //空文件放不下一行时整行写入
+                    n = len;
+                }
+            }
+            append(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void append(byte[] b, int off, int len) throws IOException
+    {
+        if (memoryMapped)
+        {
+            writeMapped(b, off, len);
+        } else
+        {
+            writeBuffered(b, off, len);
+        }
+        position += len;
+    }
+
+    /**
+     * b[off, off + limit) 中最后一个换行之后的长度，没有换行时返回 0
+     */
+    private static int lastLineEnd(byte[] b, int off, int limit)
+    {
+        for (int i = limit - 1; i >= 0; i--)
+        {
+            if (b[off + i] == '\n')
+            {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private void writeBuffered(byte[] b, int off, int len) throws IOException
+    {
+        if (len > buffer.remaining())
+        {
+            drainBuffer();
+        }
+        if (len > buffer.capacity())
+        {
+            //大于缓冲区的内容直接写出
+            writeFully(ByteBuffer.wrap(b, off, len));
+            return;
+        }
+        buffer.put(b, off, len);
+    }
+
+    private void writeMapped(byte[] b, int off, int len) throws IOException
+    {
+        while (len > 0)
+        {
+            if (mapped == null || !mapped.hasRemaining())
+            {
+                mapRegion(mappedStart + (mapped == null ? 0 : mapped.capacity()));
+            }
+            int n = Math.min(len, mapped.remaining());
+            mapped.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void mapRegion(long start) throws IOException
+    {
+        mappedStart = start;
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, start, mapRegionBytes);
+    }
+
+    /**
+     * 把缓冲区中的内容写入文件；内存映射方式下内容已经在页缓存中，不需要系统调用
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        if (channel == null)
+        {
+            return;
+        }
+        if (!memoryMapped)
+        {
+            drainBuffer();
+        }
+        if (forceIntervalMillis >= 0)
+        {
+            long now = System.currentTimeMillis();
+            if (now - lastForceMillis >= forceIntervalMillis)
+            {
+                if (memoryMapped)
+                {
+                    mapped.force();
+                } else
+                {
+                    channel.force(false);
+                }
+                lastForceMillis = now;
+            }
+        }
+    }
+
+    /**
+     * 关闭当前文件，之后的 write() 抛出 IOException
+     */
+    @Override
+    public void close() throws IOException
+    {
+        closed = true;
+        closeCurrent();
+    }
+
+    private void drainBuffer() throws IOException
+    {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer src) throws IOException
+    {
+        while (src.hasRemaining())
+        {
+            channel.write(src);
+        }
+    }
+
+    /**
+     * 第一次写入时打开文件，跨天时切换到新一天的文件
+     */
+    private void rollIfNeeded() throws IOException
+    {
+        if (channel == null)
+        {
+            open(LocalDate.now(ZONE));
+        } else if (System.currentTimeMillis() >= nextDayMillis)
+        {
+            closeCurrent();
+            open(LocalDate.now(ZONE));
+        }
+    }
+
+    /**
+     * 超过大小上限，切换到同一天的下一个文件
+     */
+    private void roll() throws IOException
+    {
+        closeCurrent();
+        index++;
+        openFile();
+    }
+
+    private void open(LocalDate today) throws IOException
+    {
+        if (!dir.exists())
+        {
+            dir.mkdirs();
+        }
+        day = today;
+        nextDayMillis = today.plusDays(1).atStartOfDay(ZONE).toInstant().toEpochMilli();
+        //重启后接着写当天编号最大的文件
+        index = 0;
+        while (fileOf(index + 1).exists())
+        {
+            index++;
+        }
+        if (fileOf(index).length() >= maxFileBytes)
+        {
+            index++;
+        }
+        openFile();
+    }
+
+    private void openFile() throws IOException
+    {
+        current = fileOf(index);
+        channel = FileChannel.open(current.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        position = channel.size();
+        if (memoryMapped)
+        {
+            mapped = null;
+            mapRegion(position);
+        } else
+        {
+            channel.position(position);
+            if (buffer == null)
+            {
+                buffer = ByteBuffer.allocateDirect(bufferBytes);
+            }
+        }
+    }
+
+    private void closeCurrent() throws IOException
+    {
+        if (channel == null)
+        {
+            return;
+        }
+        try
+        {
+            if (memoryMapped)
+            {
+                mapped.force();
+                mapped = null;
+                //去掉映射区域预先扩展出来的部分
+                channel.truncate(position);
+            } else
+            {
+                drainBuffer();
+            }
+        } finally
+        {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private File fileOf(int index)
+    {
+        String name = index == 0 ? day + ".txt" : day + "." + index + ".txt";
+        return new File(dir, name);
+    }
+}
@@ -4,9 +4,19 @@
 package com.example.crazymakercircle.util;
 
 
+import com.example.crazymakercircle.threadpool.HashedTimingWheel;
+import com.example.crazymakercircle.threadpool.InstrumentedScheduledThreadPoolExecutor;
+import com.example.crazymakercircle.threadpool.InstrumentedThreadPoolExecutor;
+import com.example.crazymakercircle.threadpool.KeyedSequentialExecutor;
+import com.example.crazymakercircle.threadpool.OverloadPolicy;
+import com.example.crazymakercircle.threadpool.PoolSizeTuner;
+import com.example.crazymakercircle.threadpool.ThreadPoolMetrics;
+
+import java.lang.reflect.Method;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -25,7 +35,7 @@ public class ThreadUtil
     /**
      * 定制的线程工厂
      */
-    private static class CustomThreadFactory implements ThreadFactory
+    public static class CustomThreadFactory implements ThreadFactory
     {
         //线程池数量
         private static final AtomicInteger poolNumber = new AtomicInteger(1);
@@ -35,7 +45,7 @@ public class ThreadUtil
         private final AtomicInteger threadNumber = new AtomicInteger(1);
         private final String threadTag;
 
-        CustomThreadFactory(String threadTag)
+        public CustomThreadFactory(String threadTag)
         {
             SecurityManager s = System.getSecurityManager();
             group = (s != null) ? s.getThreadGroup() :
@@ -59,6 +69,14 @@ public class ThreadUtil
             }
             return t;
         }
+
+        /**
+         * 线程名前缀，形如 apppool-1-mixed-
+         */
+        public String getThreadTag()
+        {
+            return threadTag;
+        }
     }
 
 
@@ -71,6 +89,36 @@ public class ThreadUtil
      */
     private static final int QUEUE_SIZE = 10000;
 
+    /**
+     * 线程池的过载策略，按线程池分别配置，取值见 OverloadPolicy，默认 abort：
+     * cpu.thread.overload / io.thread.overload / mixed.thread.overload
+     * 策略为 block 时的最长等待毫秒数：{线程池}.thread.overload.timeout，默认 1000
+     * 各策略的处理次数可以从 getThreadPoolMetrics() 或 JMX 中读取
+     */
+    public static final String OVERLOAD_POLICY_SUFFIX = ".thread.overload";
+    public static final String OVERLOAD_TIMEOUT_SUFFIX = ".thread.overload.timeout";
+    private static final long DEFAULT_OVERLOAD_TIMEOUT_MILLIS = 1000;
+
+    private static InstrumentedThreadPoolExecutor newTargetThreadPool(String tag, int threads)
+    {
+        return newTargetThreadPool(tag, threads, OverloadPolicy.ABORT);
+    }
+
+    private static InstrumentedThreadPoolExecutor newTargetThreadPool(String tag, int threads, OverloadPolicy defaultPolicy)
+    {
+        OverloadPolicy policy = OverloadPolicy.fromProperty(tag + OVERLOAD_POLICY_SUFFIX, defaultPolicy);
+        long timeout = Long.getLong(tag + OVERLOAD_TIMEOUT_SUFFIX, DEFAULT_OVERLOAD_TIMEOUT_MILLIS);
+        return new InstrumentedThreadPoolExecutor(
+                tag,
+                threads,
+                threads,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                policy.newQueue(QUEUE_SIZE),
+                new CustomThreadFactory(tag),
+                policy.newHandler(timeout));
+    }
+
     /**
      * 核心线程数
      */
@@ -81,17 +129,12 @@ public class ThreadUtil
     private static class CpuIntenseTargetThreadPoolLazyHolder
     {
         //线程池： 用于CPU密集型任务
-        private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
-                MAXIMUM_POOL_SIZE,
-                MAXIMUM_POOL_SIZE,
-                KEEP_ALIVE_SECONDS,
-                TimeUnit.SECONDS,
-                new LinkedBlockingQueue(QUEUE_SIZE),
-                new CustomThreadFactory("cpu"));
+        private static final InstrumentedThreadPoolExecutor EXECUTOR = newTargetThreadPool("cpu", MAXIMUM_POOL_SIZE);
 
         static
         {
             EXECUTOR.allowCoreThreadTimeOut(true);
+            EXECUTOR.getMetrics().register();
             //JVM关闭时的钩子函数
             Runtime.getRuntime().addShutdownHook(
                     new ShutdownHookThread("CPU密集型任务线程池", new Callable<Void>()
@@ -107,6 +150,26 @@ public class ThreadUtil
         }
     }
 
+    /**
+     * 线程池大小调优器的开关：
+     * pool.tuner.enabled 为 true 时，对 IO 密集型、混合型线程池持续采样并输出建议的线程数
+     * pool.tuner.apply   为 true 时，同时把建议的线程数应用到线程池
+     */
+    public static final String POOL_TUNER_ENABLED = "pool.tuner.enabled";
+    public static final String POOL_TUNER_APPLY = "pool.tuner.apply";
+
+    private static void startPoolSizeTuner(String name, ThreadPoolExecutor executor, int maxThreads)
+    {
+        if (!Boolean.getBoolean(POOL_TUNER_ENABLED))
+        {
+            return;
+        }
+        new PoolSizeTuner(name, executor)
+                .threadRange(1, maxThreads)
+                .apply(Boolean.getBoolean(POOL_TUNER_APPLY))
+                .start();
+    }
+
     /**
      * IO线程池最大线程数
      */
@@ -130,17 +193,13 @@ public class ThreadUtil
     private static class IoIntenseTargetThreadPoolLazyHolder
     {
         //线程池： 用于IO密集型任务
-        private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
-                IO_MAX,
-                IO_MAX,
-                KEEP_ALIVE_SECONDS,
-                TimeUnit.SECONDS,
-                new LinkedBlockingQueue(QUEUE_SIZE),
-                new CustomThreadFactory("io"));
+        private static final InstrumentedThreadPoolExecutor EXECUTOR = newTargetThreadPool("io", IO_MAX);
 
         static
         {
             EXECUTOR.allowCoreThreadTimeOut(true);
+            EXECUTOR.getMetrics().register();
+            startPoolSizeTuner("io", EXECUTOR, Math.max(IO_MAX, MIXED_MAX));
             //JVM关闭时的钩子函数
             Runtime.getRuntime().addShutdownHook(
                     new ShutdownHookThread("IO密集型任务线程池", new Callable<Void>()
@@ -181,17 +240,14 @@ public class ThreadUtil
         private static final int max = (null != System.getProperty(MIXED_THREAD_AMOUNT)) ?
                 Integer.parseInt(System.getProperty(MIXED_THREAD_AMOUNT)) : MIXED_MAX;
         //线程池： 用于混合型任务
-        private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
-                max,
-                max,
-                KEEP_ALIVE_SECONDS,
-                TimeUnit.SECONDS,
-                new LinkedBlockingQueue(QUEUE_SIZE),
-                new CustomThreadFactory("mixed"));
+        private static final InstrumentedThreadPoolExecutor EXECUTOR = newTargetThreadPool("mixed", max);
 
         static
         {
             EXECUTOR.allowCoreThreadTimeOut(true);
+            EXECUTOR.getMetrics().register();
+            //开启调优器后，mixed.thread.amount 只作为初始线程数
+            startPoolSizeTuner("mixed", EXECUTOR, Math.max(max, MIXED_MAX));
             //JVM关闭时的钩子函数
             Runtime.getRuntime().addShutdownHook(new ShutdownHookThread("混合型任务线程池", new Callable<Void>()
             {
@@ -216,16 +272,164 @@ public class ThreadUtil
         return MixedTargetThreadPoolLazyHolder.EXECUTOR;
     }
 
+    /**
+     * 虚拟线程开关：为 true 时，IO 密集型 / 混合型任务使用"每任务一个虚拟线程"的执行器
+     * 只在 JDK 21 及以上生效，低版本 JDK 自动退回平台线程池
+     */
+    public static final String IO_THREAD_VIRTUAL = "io.thread.virtual";
+    public static final String MIXED_THREAD_VIRTUAL = "mixed.thread.virtual";
+
+    /**
+     * 当前 JDK 是否支持虚拟线程（JDK 21+）
+     * 项目以 Java 17 编译，通过反射访问虚拟线程的 API
+     */
+    public static boolean isVirtualThreadSupported()
+    {
+        return VirtualThreadSupport.OF_VIRTUAL != null;
+    }
+
+    /**
+     * 创建"每任务一个虚拟线程"的执行器，线程名为 apppool-v-{threadTag}-N
+     *
+     * @param threadTag 线程名标签
+     * @throws UnsupportedOperationException JDK 低于 21 时
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String threadTag)
+    {
+        if (!isVirtualThreadSupported())
+        {
+            throw new UnsupportedOperationException("虚拟线程需要 JDK 21 及以上版本，当前版本："
+                    + System.getProperty("java.version"));
+        }
+        try
+        {
+            //等价于 Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 1).factory())
+            Object builder = VirtualThreadSupport.OF_VIRTUAL.invoke(null);
+            builder = VirtualThreadSupport.NAME.invoke(builder, "apppool-v-" + threadTag + "-", 1L);
+            ThreadFactory factory = (ThreadFactory) VirtualThreadSupport.FACTORY.invoke(builder);
+            return (ExecutorService) VirtualThreadSupport.NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+        } catch (ReflectiveOperationException e)
+        {
+            throw new UnsupportedOperationException("创建虚拟线程执行器失败", e);
+        }
+    }
+
+    //虚拟线程相关 API 的反射句柄，JDK 21 以下全部为 null
+    private static class VirtualThreadSupport
+    {
+        static final Method OF_VIRTUAL;
+        static final Method NAME;
+        static final Method FACTORY;
+        static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+        static
+        {
+            Method ofVirtual = null;
+            Method name = null;
+            Method factory = null;
+            Method newThreadPerTaskExecutor = null;
+            try
+            {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                name = builderClass.getMethod("name", String.class, long.class);
+                factory = builderClass.getMethod("factory");
+                newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+            } catch (ReflectiveOperationException e)
+            {
+                ofVirtual = null;
+            }
+            OF_VIRTUAL = ofVirtual;
+            NAME = name;
+            FACTORY = factory;
+            NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+        }
+    }
+
+    //懒汉式单例创建虚拟线程执行器：用于IO密集型任务
+    private static class IoVirtualExecutorLazyHolder
+    {
+        private static final ExecutorService EXECUTOR = newVirtualThreadPerTaskExecutor("io");
+
+        static
+        {
+            //JVM关闭时的钩子函数
+            Runtime.getRuntime().addShutdownHook(
+                    new ShutdownHookThread("IO密集型虚拟线程执行器", new Callable<Void>()
+                    {
+                        @Override
+                        public Void call() throws Exception
+                        {
+                            shutdownThreadPoolGracefully(EXECUTOR);
+                            return null;
+                        }
+                    }));
+        }
+    }
+
+    //懒汉式单例创建虚拟线程执行器：用于混合型任务
+    private static class MixedVirtualExecutorLazyHolder
+    {
+        private static final ExecutorService EXECUTOR = newVirtualThreadPerTaskExecutor("mixed");
+
+        static
+        {
+            //JVM关闭时的钩子函数
+            Runtime.getRuntime().addShutdownHook(
+                    new ShutdownHookThread("混合型虚拟线程执行器", new Callable<Void>()
+                    {
+                        @Override
+                        public Void call() throws Exception
+                        {
+                            shutdownThreadPoolGracefully(EXECUTOR);
+                            return null;
+                        }
+                    }));
+        }
+    }
+
+    /**
+     * 获取执行IO密集型任务的执行器
+     * 配置了 io.thread.virtual=true 且 JDK 支持虚拟线程时，返回虚拟线程执行器，否则返回 IO 线程池
+     *
+     * @return
+     */
+    public static ExecutorService getIoIntenseTargetExecutor()
+    {
+        if (Boolean.getBoolean(IO_THREAD_VIRTUAL) && isVirtualThreadSupported())
+        {
+            return IoVirtualExecutorLazyHolder.EXECUTOR;
+        }
+        return getIoIntenseTargetThreadPool();
+    }
+
+    /**
+     * 获取执行混合型任务的执行器
+     * 配置了 mixed.thread.virtual=true 且 JDK 支持虚拟线程时，返回虚拟线程执行器，否则返回混合线程池
+     *
+     * @return
+     */
+    public static ExecutorService getMixedTargetExecutor()
+    {
+        if (Boolean.getBoolean(MIXED_THREAD_VIRTUAL) && isVirtualThreadSupported())
+        {
+            return MixedVirtualExecutorLazyHolder.EXECUTOR;
+        }
+        return getMixedTargetThreadPool();
+    }
+
     //懒汉式单例创建线程池：用于定时任务、顺序排队执行任务
     static class SeqOrScheduledTargetThreadPoolLazyHolder
     {
         //线程池：用于定时任务、顺序排队执行任务
-        static final ScheduledThreadPoolExecutor EXECUTOR = new ScheduledThreadPoolExecutor(
+        static final InstrumentedScheduledThreadPoolExecutor EXECUTOR = new InstrumentedScheduledThreadPoolExecutor(
+                "seq",
                 1,
                 new CustomThreadFactory("seq"));
 
         static
         {
+            EXECUTOR.getMetrics().register();
             //JVM关闭时的钩子函数
             Runtime.getRuntime().addShutdownHook(
                     new ShutdownHookThread("定时和顺序任务线程池", new Callable<Void>()
@@ -243,8 +447,62 @@ public class ThreadUtil
     }
 
 
+    /**
+     * 时间轮的配置：
+     * timer.tick.millis   时间轮的精度，默认 10 毫秒，任务最多晚一个 tick 执行
+     * timer.wheel.size    每层的槽数，默认 512
+     * timer.thread.amount 执行到期任务的线程数，默认 CPU 核数（至少 2）
+     * 执行线程池的过载策略默认 abort：队列满时拒绝，计入时间轮的 getRejectedCount()，任务在下一个 tick 重新提交；
+     * 不使用 caller_runs，否则任务会在时间轮线程上执行，慢任务会推迟所有定时任务
+     */
+    public static final String TIMER_TICK_MILLIS = "timer.tick.millis";
+    public static final String TIMER_WHEEL_SIZE = "timer.wheel.size";
+    public static final String TIMER_THREAD_AMOUNT = "timer.thread.amount";
+
+    //懒汉式单例创建时间轮：用于延迟、周期性执行的任务
+    private static class TimingWheelLazyHolder
+    {
+        //执行到期任务的线程池，与日志输出、顺序任务使用的 seq 线程池分开
+        private static final InstrumentedThreadPoolExecutor EXECUTOR = newTargetThreadPool("timer",
+                Integer.getInteger(TIMER_THREAD_AMOUNT, Math.max(2, CPU_COUNT)), OverloadPolicy.ABORT);
+
+        private static final HashedTimingWheel WHEEL = new HashedTimingWheel(
+                Long.getLong(TIMER_TICK_MILLIS, 10L),
+                TimeUnit.MILLISECONDS,
+                Integer.getInteger(TIMER_WHEEL_SIZE, 512),
+                EXECUTOR,
+                new CustomThreadFactory("timer-wheel"));
+
+        static
+        {
+            EXECUTOR.getMetrics().register();
+            //JVM关闭时的钩子函数
+            Runtime.getRuntime().addShutdownHook(
+                    new ShutdownHookThread("时间轮", new Callable<Void>()
+                    {
+                        @Override
+                        public Void call() throws Exception
+                        {
+                            WHEEL.stop();
+                            //优雅关闭线程池
+                            shutdownThreadPoolGracefully(EXECUTOR);
+                            return null;
+                        }
+                    }));
+        }
+    }
+
+    /**
+     * 获取时间轮（delayRun、scheduleAtFixedRate 提交的任务）
+     */
+    public static HashedTimingWheel getTimingWheel()
+    {
+        return TimingWheelLazyHolder.WHEEL;
+    }
+
     /**
      * 获取可调度线程池（包含提交延迟、定时、周期性、顺序性执行的任务）
+     * delayRun、scheduleAtFixedRate 已改由时间轮计时，需要 ScheduledFuture 时仍可直接使用该线程池
      *
      * @return
      */
@@ -253,6 +511,15 @@ public class ThreadUtil
         return SeqOrScheduledTargetThreadPoolLazyHolder.EXECUTOR;
     }
 
+    /**
+     * 已经创建的线程池的指标，按线程池名（cpu / io / mixed / seq）索引
+     * 线程池是懒加载的，第一次使用之后才会出现在结果中；同样的指标也注册到了 JMX
+     */
+    public static Map<String, ThreadPoolMetrics> getThreadPoolMetrics()
+    {
+        return ThreadPoolMetrics.all();
+    }
+
     /**
      * 顺序排队执行
      *
@@ -264,27 +531,85 @@ public class ThreadUtil
     }
 
     /**
-     * 延迟执行
+     * 按 key 顺序执行的分段线程池的配置：
+     * keyed.seq.stripes       分段数，默认 CPU 核数的 2 倍（至少 2），向上取整为 2 的幂
+     * keyed.thread.overload   分段队列满时的策略，默认 block，不能使用 caller_runs / handoff
+     * keyed.thread.overload.timeout  block 的最长等待毫秒数，默认 0（一直等待，不丢任务），大于 0 时超时后拒绝
+     */
+    public static final String KEYED_SEQ_STRIPES = "keyed.seq.stripes";
+
+    //懒汉式单例创建按 key 顺序执行的分段线程池
+    private static class KeyedSeqLazyHolder
+    {
+        private static final KeyedSequentialExecutor EXECUTOR = new KeyedSequentialExecutor(
+                "keyed",
+                Integer.getInteger(KEYED_SEQ_STRIPES, Math.max(2, CPU_COUNT * 2)),
+                QUEUE_SIZE,
+                OverloadPolicy.fromProperty("keyed" + OVERLOAD_POLICY_SUFFIX, OverloadPolicy.BLOCK),
+                Long.getLong("keyed" + OVERLOAD_TIMEOUT_SUFFIX, 0L));
+
+        static
+        {
+            EXECUTOR.registerMetrics();
+            //JVM关闭时的钩子函数
+            Runtime.getRuntime().addShutdownHook(
+                    new ShutdownHookThread("按key顺序执行的线程池", new Callable<Void>()
+                    {
+                        @Override
+                        public Void call() throws Exception
+                        {
+                            EXECUTOR.shutdown();
+                            EXECUTOR.awaitTermination(60, TimeUnit.SECONDS);
+                            return null;
+                        }
+                    }));
+        }
+    }
+
+    /**
+     * 获取按 key 顺序执行的分段线程池
+     */
+    public static KeyedSequentialExecutor getKeyedSequentialExecutor()
+    {
+        return KeyedSeqLazyHolder.EXECUTOR;
+    }
+
+    /**
+     * 按 key 顺序排队执行：同一个 key（例如同一个用户、同一个订单）的任务按提交顺序执行，
+     * 不同 key 的任务并行执行
+     *
+     * @param key     实体的标识
+     * @param command 任务
+     */
+    public static void seqExecute(Object key, Runnable command)
+    {
+        getKeyedSequentialExecutor().execute(key, command);
+    }
+
+    /**
+     * 延迟执行，由时间轮计时，到期后在 timer 线程池中执行
      *
      * @param command
      * @param i
      * @param unit
+     * @return 可以取消的定时任务
      */
-    public static void delayRun(Runnable command, int i, TimeUnit unit)
+    public static HashedTimingWheel.Timeout delayRun(Runnable command, int i, TimeUnit unit)
     {
-        getSeqOrScheduledExecutorService().schedule(command, i, unit);
+        return getTimingWheel().schedule(command, i, unit);
     }
 
     /**
-     * 固定频率执行
+     * 固定频率执行，由时间轮计时，到期后在 timer 线程池中执行
      *
      * @param command
      * @param i
      * @param unit
+     * @return 可以取消的定时任务，取消后不再执行
      */
-    public static void scheduleAtFixedRate(Runnable command, int i, TimeUnit unit)
+    public static HashedTimingWheel.Timeout scheduleAtFixedRate(Runnable command, int i, TimeUnit unit)
     {
-        getSeqOrScheduledExecutorService().scheduleAtFixedRate(command, i, i, unit);
+        return getTimingWheel().scheduleAtFixedRate(command, i, i, unit);
     }
 
     /**
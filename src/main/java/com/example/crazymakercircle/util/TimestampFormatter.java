@@ -0,0 +1,186 @@
+package com.example.crazymakercircle.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 缓存格式化结果的时间戳格式化器
+ * <p>
+ * 格式化结果按秒缓存：同一秒内的调用直接返回缓存的字符串，或者把缓存的字符复制到调用方的缓冲区，
+ * 只有时钟跨过一秒时才用 java.time 重新格式化一次。
+ * 格式以 ".SSS" 结尾时，秒之前的部分走缓存，毫秒的三位数字直接写入。
+ * <p>
+ * 缓存是一个不可变对象，通过 volatile 引用整体替换，读取不加锁；
+ * 多个线程同时跨秒时可能各自格式化一次，结果相同，不影响正确性。
+ * 除每秒一次的重新格式化外，format()（不含毫秒时）与 writeTo() 都不分配对象。
+ */
+public final class TimestampFormatter
+{
+    private static final String MILLIS_SUFFIX = ".SSS";
+
+    private final DateTimeFormatter formatter;
+    private final ZoneId zone;
+    private final boolean millis;
+
+    private volatile Cached cached;
+
+    /**
+     * 同一秒内的格式化结果
+     */
+    private static final class Cached
+    {
+        final long epochSecond;
+        final String text;
+        final char[] chars;
+        final byte[] bytes;
+
+        Cached(long epochSecond, String text)
+        {
+            this.epochSecond = epochSecond;
+            this.text = text;
+            this.chars = text.toCharArray();
+            this.bytes = text.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private TimestampFormatter(String pattern, ZoneId zone)
+    {
+        this.millis = pattern.endsWith(MILLIS_SUFFIX);
+        String secondPattern = millis ? pattern.substring(0, pattern.length() - MILLIS_SUFFIX.length()) : pattern;
+        this.formatter = DateTimeFormatter.ofPattern(secondPattern);
+        this.zone = zone;
+        this.cached = render(System.currentTimeMillis() / 1000);
+    }
+
+    /**
+     * 使用系统默认时区
+     *
+     * @param pattern DateTimeFormatter 的格式，精度到秒，或者以 ".SSS" 结尾
+     */
+    public static TimestampFormatter of(String pattern)
+    {
+        return new TimestampFormatter(pattern, ZoneId.systemDefault());
+    }
+
+    public static TimestampFormatter of(String pattern, ZoneId zone)
+    {
+        return new TimestampFormatter(pattern, zone);
+    }
+
+    /**
+     * 格式化后的字符数
+     */
+    public int length()
+    {
+        return cached.chars.length + (millis ? MILLIS_SUFFIX.length() : 0);
+    }
+
+    /**
+     * 当前时间
+     */
+    public String format()
+    {
+        return format(System.currentTimeMillis());
+    }
+
+    /**
+     * 不含毫秒时返回缓存的字符串，不分配对象
+     */
+    public String format(long epochMillis)
+    {
+        Cached c = cachedOf(epochMillis);
+        if (!millis)
+        {
+            return c.text;
+        }
+        char[] out = new char[c.chars.length + MILLIS_SUFFIX.length()];
+        writeTo(epochMillis, out, 0);
+        return new String(out);
+    }
+
+    /**
+     * 写入调用方的字符数组
+     *
+     * @return 写入的字符数
+     */
+    public int writeTo(long epochMillis, char[] dst, int offset)
+    {
+        Cached c = cachedOf(epochMillis);
+        char[] chars = c.chars;
+        System.arraycopy(chars, 0, dst, offset, chars.length);
+        int n = chars.length;
+        if (millis)
+        {
+            int ms = (int) Math.floorMod(epochMillis, 1000L);
+            dst[offset + n] = '.';
+            dst[offset + n + 1] = (char) ('0' + ms / 100);
+            dst[offset + n + 2] = (char) ('0' + ms / 10 % 10);
+            dst[offset + n + 3] = (char) ('0' + ms % 10);
+            n += MILLIS_SUFFIX.length();
+        }
+        return n;
+    }
+
+    /**
+     * 以 UTF-8 写入调用方的缓冲区，从缓冲区当前的 position 开始
+     *
+     * @return 写入的字节数
+     */
+    public int writeTo(long epochMillis, ByteBuffer dst)
+    {
+        Cached c = cachedOf(epochMillis);
+        dst.put(c.bytes);
+        int n = c.bytes.length;
+        if (millis)
+        {
+            int ms = (int) Math.floorMod(epochMillis, 1000L);
+            dst.put((byte) '.');
+            dst.put((byte) ('0' + ms / 100));
+            dst.put((byte) ('0' + ms / 10 % 10));
+            dst.put((byte) ('0' + ms % 10));
+            n += MILLIS_SUFFIX.length();
+        }
+        return n;
+    }
+
+    /**
+     * 追加到 StringBuilder，不创建中间字符串
+     */
+    public StringBuilder appendTo(long epochMillis, StringBuilder sb)
+    {
+        Cached c = cachedOf(epochMillis);
+        sb.append(c.chars);
+        if (millis)
+        {
+            int ms = (int) Math.floorMod(epochMillis, 1000L);
+            sb.append('.')
+                    .append((char) ('0' + ms / 100))
+                    .append((char) ('0' + ms / 10 % 10))
+                    .append((char) ('0' + ms % 10));
+        }
+        return sb;
+    }
+
+    private Cached cachedOf(long epochMillis)
+    {
+        long second = Math.floorDiv(epochMillis, 1000L);
+        Cached c = cached;
+        if (c.epochSecond != second)
+        {
+            //时钟跨过一秒（或回拨），重新格式化后整体替换
+            c = render(second);
+            cached = c;
+        }
+        return c;
+    }
+
+    private Cached render(long epochSecond)
+    {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone);
+        return new Cached(epochSecond, formatter.format(time));
+    }
+}
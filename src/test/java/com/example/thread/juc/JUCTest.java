@@ -1,9 +1,14 @@
 package com.example.thread.juc;
 
+import com.example.crazymakercircle.cocurrent.CallbackTask;
+import com.example.crazymakercircle.cocurrent.CallbackTaskScheduler;
 import com.example.crazymakercircle.util.ThreadUtil;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.*;
 
 /**
@@ -551,6 +556,114 @@ public class JUCTest {
         f3.get();
     }
 
+    /**
+     * 记录回调次数的任务, 用于断言 onSuccess/onFailure 只回调一次
+     */
+    static class CountingTask implements CallbackTask<Integer> {
+        final AtomicInteger successCount = new AtomicInteger();
+        final AtomicInteger failureCount = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch fired = new CountDownLatch(1);
+        //execute 是否被中断
+        volatile boolean interrupted;
+        private final Callable<Integer> body;
+
+        CountingTask(Callable<Integer> body) {
+            this.body = body;
+        }
+
+        @Override
+        public Integer execute() throws Exception {
+            try {
+                return body.call();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void onSuccess(Integer r) {
+            System.out.println("onSuccess: " + r + " " + Thread.currentThread().getName());
+            successCount.incrementAndGet();
+            fired.countDown();
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            System.out.println("onFailure: " + t + " " + Thread.currentThread().getName());
+            failure.set(t);
+            failureCount.incrementAndGet();
+            fired.countDown();
+        }
+    }
+
+    /**
+     * CallbackTaskScheduler 返回的 CompletableFuture 可以继续编排
+     * 回调 onSuccess 在执行任务的池线程中直接执行
+     */
+    @Test
+    public void test16() throws ExecutionException, InterruptedException, TimeoutException {
+        CountingTask task = new CountingTask(() -> {
+            System.out.println("execute: " + Thread.currentThread().getName());
+            return 10;
+        });
+        CompletableFuture<Integer> future = CallbackTaskScheduler.add(task);
+
+        Integer result = future.thenApply(this::square).get(1, TimeUnit.SECONDS);
+        System.out.println("result: " + result);
+        Assertions.assertEquals(100, (int) result);
+        Assertions.assertTrue(task.fired.await(1, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, task.successCount.get());
+        Assertions.assertEquals(0, task.failureCount.get());
+    }
+
+    /**
+     * 超时: future 以 TimeoutException 结束, onFailure 被回调, 回调交给混合线程池执行
+     * 任务之后执行完也不再回调 onSuccess
+     */
+    @Test
+    public void test17() throws InterruptedException {
+        ThreadPoolExecutor mixedThreadPool = ThreadUtil.getMixedTargetThreadPool();
+        CountingTask task = new CountingTask(() -> {
+            TimeUnit.SECONDS.sleep(2);
+            return 1;
+        });
+        CompletableFuture<Integer> future = CallbackTaskScheduler.add(task, mixedThreadPool, 500, TimeUnit.MILLISECONDS);
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, future::get);
+        System.out.println("get: " + e.getCause());
+        Assertions.assertInstanceOf(TimeoutException.class, e.getCause());
+        Assertions.assertTrue(task.fired.await(1, TimeUnit.SECONDS));
+        //等待任务执行完
+        sleep(3);
+        Assertions.assertEquals(1, task.failureCount.get());
+        Assertions.assertInstanceOf(TimeoutException.class, task.failure.get());
+        Assertions.assertEquals(0, task.successCount.get());
+    }
+
+    /**
+     * 取消: cancel(true) 中断正在执行的任务, onFailure 收到 CancellationException
+     */
+    @Test
+    public void test18() throws InterruptedException {
+        CountingTask task = new CountingTask(() -> {
+            TimeUnit.SECONDS.sleep(5);
+            return 1;
+        });
+        CompletableFuture<Integer> future = CallbackTaskScheduler.add(task);
+        sleep(1);
+        Assertions.assertTrue(future.cancel(true));
+        Assertions.assertTrue(future.isCancelled());
+        Assertions.assertTrue(task.fired.await(1, TimeUnit.SECONDS));
+        //等待执行线程响应中断
+        TimeUnit.MILLISECONDS.sleep(200);
+        Assertions.assertTrue(task.interrupted);
+        Assertions.assertEquals(1, task.failureCount.get());
+        Assertions.assertInstanceOf(CancellationException.class, task.failure.get());
+        Assertions.assertEquals(0, task.successCount.get());
+    }
+
     public void sleep(int s) {
         try {
             TimeUnit.SECONDS.sleep(s);